@@ -10,6 +10,7 @@ class ModuleType(Enum):
 
 
 class InvocationMethod(Enum):
+    STAGE = "STAGE"
     START = "START"
     STOP = "STOP"
     CANCEL = "CANCEL"
@@ -66,7 +67,8 @@ class Experiment:
                  start: datetime.datetime,
                  end: datetime.datetime,
                  nodes: List[ExperimentNode],
-                 action: InvocationMethod
+                 action: InvocationMethod,
+                 firmware_hashes: Dict[str, str]
                  ):
         self.action = action
         self.name = name
@@ -74,6 +76,8 @@ class Experiment:
         self.start = start
         self.end = end
         self.nodes = nodes
+        # Firmware name -> SHA-256 hash of its content, empty for servers without a firmware store
+        self.firmware_hashes = firmware_hashes
 
     @staticmethod
     def from_json(json_dict: Dict):
@@ -89,5 +93,6 @@ class Experiment:
             datetime.datetime(*json_dict["start"]),
             datetime.datetime(*json_dict["end"]),
             nodes_list,
-            InvocationMethod(json_dict["action"])
+            InvocationMethod(json_dict["action"]),
+            json_dict.get("firmwareHashes") or {}
         )
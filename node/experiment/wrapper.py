@@ -129,7 +129,20 @@ class ExperimentWrapper:
         modules = self.get_descriptor_modules()
 
         for module in modules:
-            nodeConfiguration.firmware_retriever.retrieve_firmware(self.descriptor.experiment_id, module.firmware)
+            firmware_path = firmware.resolve_local_fw_path(
+                nodeConfiguration.configuration.workingDirectory,
+                self.descriptor.experiment_id
+            ).joinpath(module.firmware)
+
+            if firmware.holds_firmware(firmware_path, self.descriptor.firmware_hashes.get(module.firmware)):
+                self.logger.info(f"Firmware '{module.firmware}' was staged already")
+                continue
+
+            nodeConfiguration.firmware_retriever.retrieve_firmware(
+                self.descriptor.experiment_id,
+                module.firmware,
+                self.descriptor.firmware_hashes.get(module.firmware)
+            )
 
     def wait_for_firmware(self, target_time: DateTime):
         self.logger.info("Waiting for firmware")
@@ -159,6 +172,12 @@ class ExperimentWrapper:
             print(f"Got firmware '{module.firmware}'")
             self.logger.info(f"Got firmware '{module.firmware}'")
 
+            nodeConfiguration.firmware_retriever.cache_firmware(
+                self.descriptor.experiment_id,
+                module.firmware,
+                self.descriptor.firmware_hashes.get(module.firmware)
+            )
+
         self.logger.info("All firmware received")
 
     def __early_stop(self, retrieve_logs: bool):
@@ -6,7 +6,7 @@ from threading import Thread
 
 from kafka import KafkaConsumer
 
-from configuration import constants
+from configuration import constants, nodeConfiguration
 from configuration.experiment import Experiment, InvocationMethod
 from experiment.wrapper import ExperimentWrapper
 
@@ -19,6 +19,23 @@ def node_in_experiment(node_id: str, experiment: Experiment) -> bool:
     return False
 
 
+def stage_firmware(node_id: str, experiment: Experiment):
+    """
+    Requests the node's firmware right after the experiment was scheduled, so it is in place long before the start
+    """
+    for node in experiment.nodes:
+        if node.id != node_id:
+            continue
+
+        for module in node.modules:
+            nodeConfiguration.firmware_retriever.retrieve_firmware(
+                experiment.experiment_id,
+                module.firmware,
+                experiment.firmware_hashes.get(module.firmware),
+                staging=True
+            )
+
+
 class ExperimentTracker:
     def __init__(self):
         self.running_experiments = {}
@@ -62,7 +79,11 @@ class ExperimentProcessor(ExperimentTracker, Thread):
         for message in self.kafka_connector:
             experiment = message.value
 
-            if experiment.action == InvocationMethod.START:
+            if experiment.action == InvocationMethod.STAGE:
+                if node_in_experiment(self.node_id, experiment):
+                    logging.info(f'Staging firmware of experiment {experiment.experiment_id}')
+                    stage_firmware(self.node_id, experiment)
+            elif experiment.action == InvocationMethod.START:
                 if node_in_experiment(self.node_id, experiment):
                     wrapper = ExperimentWrapper(self.node_id, experiment, lambda: self.cleanup(experiment))
                     threading.Thread(target=wrapper.run).start()
@@ -1,26 +1,78 @@
+import hashlib
 import json
 import os
+import shutil
+import tempfile
 from pathlib import Path
+from typing import Optional
 
 from kafka import KafkaProducer
 
 from configuration import constants
 
 
+# Number of firmware blobs kept in the cache, least recently used ones are removed first
+MAX_CACHED_FIRMWARE = 32
+
+
 class FirmwareRetrievalMessage:
-    def __init__(self, experimentId: str, firmwareName: str, hostName: str, targetPath: str, nodeId: str):
+    def __init__(self, experimentId: str, firmwareName: str, hostName: str, targetPath: str, nodeId: str,
+                 firmwareHash: Optional[str] = None, staging: bool = False):
         self.experimentId = experimentId
         self.firmwareName = firmwareName
         self.hostName = hostName
         self.userName = os.getlogin()
         self.targetPath = targetPath
         self.nodeId = nodeId
+        # Set if the firmware was taken from the cache, tells the server to skip the transfer
+        self.firmwareHash = firmwareHash
+        # Transferred with low priority, as the experiment starts much later
+        self.staging = staging
 
 
 def resolve_local_fw_path(working_directory: Path, experiment_id: str) -> Path:
     return working_directory.joinpath(experiment_id, "firmware")
 
 
+def resolve_fw_cache_path(working_directory: Path) -> Path:
+    """
+    Firmware received by earlier experiments, stored by the SHA-256 hash of its content
+    """
+    return working_directory.joinpath("firmware-cache")
+
+
+def hash_file(path: Path) -> str:
+    sha256 = hashlib.sha256()
+
+    with open(path, "rb") as file:
+        for chunk in iter(lambda: file.read(65536), b""):
+            sha256.update(chunk)
+
+    return sha256.hexdigest()
+
+
+def holds_firmware(path: Path, firmware_hash: Optional[str]) -> bool:
+    """
+    Whether the file is complete firmware with the given hash, e.g. because it was staged before the experiment's start
+    """
+    return firmware_hash is not None and path.is_file() and hash_file(path) == firmware_hash
+
+
+def copy_atomically(source: Path, target: Path):
+    """
+    Copies via a temporary file, so the target never appears partially written
+    """
+    file_descriptor, temporary_path = tempfile.mkstemp(dir=target.parent, prefix=".firmware-")
+    os.close(file_descriptor)
+
+    try:
+        shutil.copyfile(source, temporary_path)
+        os.replace(temporary_path, target)
+    except BaseException:
+        os.remove(temporary_path)
+        raise
+
+
 class FirmwareRetriever():
     def __init__(self, host_name: str, node_id: str, working_directory: str, kafka_bootstrap: str):
         self.node_id = node_id
@@ -31,10 +83,17 @@ class FirmwareRetriever():
             value_serializer=lambda x: json.dumps(x, default=lambda o: o.__dict__).encode("utf-8")
         )
 
-    def retrieve_firmware(self, experiment_id: str, firmware_name: str):
+    def retrieve_firmware(self, experiment_id: str, firmware_name: str, firmware_hash: Optional[str] = None,
+                          staging: bool = False):
         local_fw_path = resolve_local_fw_path(Path(self.working_directory), experiment_id)
         os.makedirs(local_fw_path, exist_ok=True)
 
+        target = local_fw_path.joinpath(firmware_name)
+
+        # Reported by hash, so the server skips the transfer and counts the firmware as staged
+        if not holds_firmware(target, firmware_hash) and not self.__take_from_cache(target, firmware_hash):
+            firmware_hash = None
+
         self.retrieval_msg_producer.send(
             constants.FIRMWARE_RETRIEVAL_TOPIC,
             FirmwareRetrievalMessage(
@@ -42,6 +101,57 @@ class FirmwareRetriever():
                 firmware_name,
                 self.host_name,
                 str(local_fw_path),
-                self.node_id
+                self.node_id,
+                firmware_hash,
+                staging
             )
         )
+
+    def __take_from_cache(self, target: Path, firmware_hash: Optional[str]) -> bool:
+        if firmware_hash is None:
+            return False
+
+        cached_path = resolve_fw_cache_path(Path(self.working_directory)).joinpath(firmware_hash)
+
+        if not cached_path.is_file():
+            return False
+
+        # Copied rather than linked, so a transfer into the target can never alter the cached blob
+        copy_atomically(cached_path, target)
+        os.utime(cached_path)
+
+        return True
+
+    def cache_firmware(self, experiment_id: str, firmware_name: str, firmware_hash: Optional[str]):
+        """
+        Adds received firmware to the cache, if its content matches the hash announced by the server
+        """
+        if firmware_hash is None:
+            return
+
+        cache_path = resolve_fw_cache_path(Path(self.working_directory))
+        cached_path = cache_path.joinpath(firmware_hash)
+
+        if cached_path.is_file():
+            return
+
+        firmware_path = resolve_local_fw_path(Path(self.working_directory), experiment_id).joinpath(firmware_name)
+
+        if hash_file(firmware_path) != firmware_hash:
+            return
+
+        os.makedirs(cache_path, exist_ok=True)
+        copy_atomically(firmware_path, cached_path)
+
+        self.__evict_cached_firmware(cache_path)
+
+    @staticmethod
+    def __evict_cached_firmware(cache_path: Path):
+        cached_files = sorted(
+            (path for path in cache_path.iterdir() if path.is_file() and not path.name.startswith(".")),
+            key=lambda path: path.stat().st_mtime,
+            reverse=True
+        )
+
+        for path in cached_files[MAX_CACHED_FIRMWARE:]:
+            path.unlink(missing_ok=True)
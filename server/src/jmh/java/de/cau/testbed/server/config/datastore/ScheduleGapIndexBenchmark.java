@@ -0,0 +1,174 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding a free time slot for a queued experiment through the {@link ScheduleGapIndex} with moving the
+ * candidate past colliding experiments one at a time, as queuing did before, for a schedule of many future bookings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleGapIndexBenchmark {
+    private static final int NODE_COUNT = 18;
+    private static final Duration DURATION = Duration.ofHours(1);
+
+    @Param({"1000", "10000"})
+    public int bookingCount;
+
+    private final ExperimentIntervalIndex timeIndex = new ExperimentIntervalIndex();
+    private final ScheduleGapIndex gapIndex = new ScheduleGapIndex();
+    private final List<List<String>> requestedNodes = new ArrayList<>();
+    private LocalDateTime now;
+    private int nextRequest;
+
+    @Setup(Level.Trial)
+    public void createSchedule() {
+        final Random random = new Random(42);
+        now = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+        // Nodes are booked back to back with breaks shorter than the requested duration
+        final LocalDateTime[] freeFrom = new LocalDateTime[NODE_COUNT];
+        Arrays.fill(freeFrom, now);
+
+        for (int id = 0; id < bookingCount; id++) {
+            final List<String> nodeIds = pickNodes(random);
+            LocalDateTime start = now;
+
+            for (String nodeId : nodeIds)
+                start = max(start, freeFrom[nodeIndex(nodeId)]);
+
+            start = start.plusMinutes(random.nextInt(30));
+            final LocalDateTime end = start.plusMinutes(15 + random.nextInt(120));
+
+            for (String nodeId : nodeIds)
+                freeFrom[nodeIndex(nodeId)] = end.plusMinutes(5);
+
+            final ExperimentDescriptor booking = new Booking(
+                    id, start, end, nodeIds.stream().map(nodeId -> new ExperimentNode(nodeId, List.of())).toList()
+            );
+            timeIndex.add(booking);
+            gapIndex.add(booking);
+        }
+
+        for (int i = 0; i < 64; i++)
+            requestedNodes.add(pickNodes(random));
+    }
+
+    @Benchmark
+    public LocalDateTime gapIndex() {
+        return gapIndex.findFreeTimeSlot(nextRequestedNodes(), now, DURATION);
+    }
+
+    @Benchmark
+    public LocalDateTime collisionWalk() {
+        final Set<String> nodeIds = new HashSet<>(nextRequestedNodes());
+        LocalDateTime start = now;
+        boolean collides;
+
+        do {
+            collides = false;
+
+            for (ExperimentDescriptor experiment : timeIndex.getOverlapping(start, start.plus(DURATION))) {
+                // The time frames are inclusive, so experiments ending right at the candidate do not collide
+                if (!experiment.getEnd().isAfter(start))
+                    continue;
+
+                for (ExperimentNode node : experiment.getNodes()) {
+                    if (nodeIds.contains(node.id())) {
+                        start = experiment.getEnd();
+                        collides = true;
+                        break;
+                    }
+                }
+            }
+        } while (collides);
+
+        return start;
+    }
+
+    private List<String> nextRequestedNodes() {
+        return requestedNodes.get(nextRequest++ & 63);
+    }
+
+    private static List<String> pickNodes(Random random) {
+        final Set<String> nodeIds = new TreeSet<>();
+        final int count = 1 + random.nextInt(3);
+
+        while (nodeIds.size() < count)
+            nodeIds.add(String.format("raspi%02d", random.nextInt(NODE_COUNT)));
+
+        return List.copyOf(nodeIds);
+    }
+
+    private static int nodeIndex(String nodeId) {
+        return Integer.parseInt(nodeId.substring(5));
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private record Booking(long id, LocalDateTime start, LocalDateTime end, List<ExperimentNode> nodes) implements ExperimentDescriptor {
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "booking-" + id;
+        }
+
+        @Override
+        public User getOwner() {
+            return null;
+        }
+
+        @Override
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        @Override
+        public LocalDateTime getEnd() {
+            return end;
+        }
+
+        @Override
+        public boolean isQueued() {
+            return false;
+        }
+
+        @Override
+        public ExperimentStatus getStatus() {
+            return ExperimentStatus.SCHEDULED;
+        }
+
+        @Override
+        public void setStatus(ExperimentStatus status) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ExperimentNode> getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public Object getLockObject() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.cau.testbed.server.module;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures handling a heartbeat of a random node, comparing the shared {@link NodeLivenessMonitor} with replacing a
+ * {@link Timer} per node on every heartbeat, as {@link NodeStatusObject} did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class NodeLivenessBenchmark {
+    private static final int TIMEOUT_MS = 10_000;
+
+    @Param({"1000", "10000"})
+    public int nodeCount;
+
+    private NodeStatusObject[] nodes;
+    private Timer[] timers;
+
+    @Setup(Level.Trial)
+    public void createNodes() {
+        final NodeLivenessMonitor livenessMonitor = new NodeLivenessMonitor();
+        livenessMonitor.start();
+
+        nodes = new NodeStatusObject[nodeCount];
+        timers = new Timer[nodeCount];
+
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new NodeStatusObject("node" + i, TIMEOUT_MS, livenessMonitor);
+            timers[i] = createTimer();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cancelTimers() {
+        for (Timer timer : timers)
+            timer.cancel();
+    }
+
+    @Benchmark
+    public void livenessMonitor() {
+        nodes[ThreadLocalRandom.current().nextInt(nodeCount)].onHeartbeat();
+    }
+
+    @Benchmark
+    public void timerPerHeartbeat() {
+        final int node = ThreadLocalRandom.current().nextInt(nodeCount);
+
+        // Heartbeats of the same node replace its timer one after another
+        synchronized (nodes[node]) {
+            timers[node].cancel();
+            timers[node] = createTimer();
+        }
+    }
+
+    private static Timer createTimer() {
+        final Timer timer = new Timer(true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+            }
+        }, TIMEOUT_MS + 1_000);
+
+        return timer;
+    }
+}
@@ -0,0 +1,56 @@
+package de.cau.testbed.server.network.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cau.testbed.server.network.message.FirmwareRetrievalMessage;
+import de.cau.testbed.server.network.message.HeartbeatMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the deserializers with creating an ObjectMapper and decoding the payload to a String for every message,
+ * as they did before. Run with '-prof gc' to also see the allocations per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeserializerBenchmark {
+    // Formatted like the messages sent by the nodes
+    private static final byte[] HEARTBEAT = "{\"nodeId\": \"raspi01\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FIRMWARE_RETRIEVAL = ("{\"firmware\": \"node.ihex\", \"hostName\": \"raspi01\", "
+            + "\"userName\": \"pi\", \"targetPath\": \"/home/pi/testbed/firmware/node.ihex\", \"experimentId\": \"42\", "
+            + "\"nodeId\": \"raspi01\", \"firmwareHash\": null, \"staging\": false}").getBytes(StandardCharsets.UTF_8);
+
+    private final HeartbeatDeserializer heartbeatDeserializer = new HeartbeatDeserializer();
+    private final FirmwareRetrievalMessageDeserializer firmwareRetrievalDeserializer = new FirmwareRetrievalMessageDeserializer();
+
+    @Benchmark
+    public HeartbeatMessage heartbeatHandParsed() {
+        return heartbeatDeserializer.deserialize("heartbeat", HEARTBEAT);
+    }
+
+    @Benchmark
+    public HeartbeatMessage heartbeatCachedReader() {
+        return heartbeatDeserializer.deserialize(HEARTBEAT);
+    }
+
+    @Benchmark
+    public HeartbeatMessage heartbeatMapperPerMessage() throws IOException {
+        return new ObjectMapper().readValue(new String(HEARTBEAT, StandardCharsets.UTF_8), HeartbeatMessage.class);
+    }
+
+    @Benchmark
+    public FirmwareRetrievalMessage firmwareRetrievalCachedReader() {
+        return firmwareRetrievalDeserializer.deserialize("firmwareRetrieval", FIRMWARE_RETRIEVAL);
+    }
+
+    @Benchmark
+    public FirmwareRetrievalMessage firmwareRetrievalMapperPerMessage() throws IOException {
+        return new ObjectMapper().readValue(new String(FIRMWARE_RETRIEVAL, StandardCharsets.UTF_8), FirmwareRetrievalMessage.class);
+    }
+}
@@ -0,0 +1,67 @@
+package de.cau.testbed.server.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares looking up and creating experiment folders in the flat 'experiments/<id>' layout with the sharded layout
+ * of {@link PathUtil}, in a working directory that already holds the given number of experiments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathUtilBenchmark {
+    @Param({"100000"})
+    public int experimentCount;
+
+    @Param({"FLAT", "SHARDED"})
+    public String layout;
+
+    private Path workingDirectory;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void createExperiments() throws IOException {
+        workingDirectory = Files.createTempDirectory("path-benchmark-");
+        PathUtil.initialize(workingDirectory);
+
+        for (long id = 0; id < experimentCount; id++)
+            Files.createDirectories(getExperimentPath(id));
+
+        nextId = experimentCount;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteExperiments() throws IOException {
+        try (Stream<Path> paths = Files.walk(workingDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public boolean lookup() {
+        return Files.isDirectory(getExperimentPath(ThreadLocalRandom.current().nextLong(experimentCount)));
+    }
+
+    @Benchmark
+    public Path create() throws IOException {
+        return Files.createDirectories(getExperimentPath(nextId++).resolve("logs"));
+    }
+
+    private Path getExperimentPath(long experimentId) {
+        return layout.equals("FLAT")
+                ? PathUtil.getExperimentsPath().resolve(Long.toString(experimentId))
+                : PathUtil.getExperimentPath(experimentId);
+    }
+}
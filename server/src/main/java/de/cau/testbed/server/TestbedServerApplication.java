@@ -1,13 +1,27 @@
 package de.cau.testbed.server;
 
+import com.codahale.metrics.MetricRegistry;
 import de.cau.testbed.server.config.HardwareNode;
+import de.cau.testbed.server.command.ImportYAMLCommand;
 import de.cau.testbed.server.config.TestbedServerConfiguration;
+import de.cau.testbed.server.config.datastore.Database;
 import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.datastore.mvstore.MVStoreDatabase;
 import de.cau.testbed.server.config.datastore.yaml.YAMLDatabase;
 import de.cau.testbed.server.constants.KafkaConstants;
+import de.cau.testbed.server.constants.KafkaTopic;
 import de.cau.testbed.server.module.*;
-import de.cau.testbed.server.network.KafkaNetworkReceiver;
-import de.cau.testbed.server.network.KafkaNetworkSender;
+import de.cau.testbed.server.network.KafkaTransport;
+import de.cau.testbed.server.network.NetworkTransport;
+import de.cau.testbed.server.network.fileTransfer.BandwidthBudget;
+import de.cau.testbed.server.network.fileTransfer.FileTransferHandler;
+import de.cau.testbed.server.network.fileTransfer.SCPFileTransferHandler;
+import de.cau.testbed.server.network.fileTransfer.SSHConnectionPool;
+import de.cau.testbed.server.network.fileTransfer.StreamingDownloadHandler;
+import de.cau.testbed.server.network.fileTransfer.TransferScheduler;
+import de.cau.testbed.server.network.memory.InMemoryTransport;
+import de.cau.testbed.server.network.serialization.FirmwareRetrievalMessageDeserializer;
+import de.cau.testbed.server.network.serialization.LogRetrievalMessageDeserializer;
 import de.cau.testbed.server.resources.AdminResource;
 import de.cau.testbed.server.resources.ExperimentResource;
 import de.cau.testbed.server.resources.UploadFirmwareResource;
@@ -18,8 +32,9 @@ import de.cau.testbed.server.service.FirmwareService;
 import de.cau.testbed.server.service.NodeService;
 import de.cau.testbed.server.service.UserService;
 import de.cau.testbed.server.util.ExperimentFinishTrackerFactory;
+import de.cau.testbed.server.util.FirmwareStagingTracker;
 import de.cau.testbed.server.util.PathUtil;
-import de.cau.testbed.server.util.event.LogRetrievedEvent;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.AuthValueFactoryProvider;
 import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
@@ -27,10 +42,12 @@ import io.dropwizard.core.Application;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
 import io.dropwizard.forms.MultiPartBundle;
+import io.dropwizard.lifecycle.Managed;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.SubmissionPublisher;
 import java.util.stream.Collectors;
 
 public class TestbedServerApplication extends Application<TestbedServerConfiguration> {
@@ -42,34 +59,53 @@ public class TestbedServerApplication extends Application<TestbedServerConfigura
     public void initialize(Bootstrap<TestbedServerConfiguration> bootstrap) {
         super.initialize(bootstrap);
         bootstrap.addBundle(new MultiPartBundle());
+        bootstrap.addCommand(new ImportYAMLCommand());
     }
 
     @Override
-    public void run(TestbedServerConfiguration configuration, Environment environment) {
+    public void run(TestbedServerConfiguration configuration, Environment environment) throws IOException {
         PathUtil.initialize(configuration.workingDirectory);
-        KafkaNetworkSender.setKafkaAddress(configuration.kafkaAddress);
-        KafkaNetworkReceiver.setKafkaAddress(configuration.kafkaAddress);
+        PathUtil.migrateToShardedLayout();
+        final NetworkTransport transport = createTransport(configuration);
 
-        final YAMLDatabase database = new YAMLDatabase(configuration.workingDirectory);
+        final Database database = createDatabase(configuration);
         registerAuthorizationComponent(environment, database);
 
-        final List<NodeStatusObject> nodeStatusList = createHeartbeatThread(configuration.nodes, configuration.heartbeatInterval);
-        createFirmwareDistributionThreads(configuration.numFirmwareDistributionThreads);
+        // Compact the experiment journal or close the database file on shutdown
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void stop() throws Exception {
+                database.close();
+            }
+        });
 
-        // Setup for event-based pipeline between log retrieval threads and trackers
-        final SubmissionPublisher<LogRetrievedEvent> logRetrievedHandler = new SubmissionPublisher<>();
+        final List<NodeStatusObject> nodeStatusList = createHeartbeatThread(transport, configuration.nodes, configuration.heartbeatInterval, configuration.heartbeatBatchSize);
+
+        // Firmware and log transfers share one pool of SSH connections per node and are admitted by priority
+        final TransferScheduler transferScheduler = createTransferScheduler(configuration, environment.metrics());
+        final FirmwareStagingTracker stagingTracker = new FirmwareStagingTracker();
+        createFirmwareDistributionWorkers(transport, configuration, transferScheduler, stagingTracker, environment.metrics());
+
+        // Setup for event-based pipeline between log retrieval threads and trackers, routed by experiment ID
+        final LogRetrievedEventDispatcher logRetrievedHandler = new LogRetrievedEventDispatcher();
         final ExperimentFinishTrackerFactory trackerFactory = new ExperimentFinishTrackerFactory(logRetrievedHandler);
-        createLogRetrievalThreads(configuration.numLogRetrievalThreads, logRetrievedHandler);
+        createLogRetrievalWorkers(transport, configuration, logRetrievedHandler, transferScheduler);
 
         // Create trackers for experiments that have started before execution of server
         trackerFactory.createInitialTrackers(database);
 
-        // Create scheduling thread that handles initiation of experiments
-        final ExperimentSchedulingThread schedulingThread = new ExperimentSchedulingThread(database, trackerFactory);
-        schedulingThread.start();
+        // Create scheduler that handles initiation of experiments
+        final ExperimentScheduler experimentScheduler = new ExperimentScheduler(transport, trackerFactory, stagingTracker, environment.metrics());
+        experimentScheduler.scheduleExisting(database);
 
         // Services handle backend stuff for the front-end REST API
-        final ExperimentService experimentService = new ExperimentService(database, configuration.nodes, schedulingThread);
+        final ExperimentService experimentService = new ExperimentService(
+                database,
+                configuration.nodes,
+                experimentScheduler,
+                configuration.backfillQueuedExperiments
+        );
+        trackerFactory.setEarlyFinishListener(experimentService::requestBackfill);
         final FirmwareService firmwareService = new FirmwareService(database);
         final UserService userService = new UserService(database.getUserDatabase());
         final NodeService nodeService = new NodeService(nodeStatusList);
@@ -80,17 +116,74 @@ public class TestbedServerApplication extends Application<TestbedServerConfigura
         environment.jersey().register(new AdminResource(userService, nodeService));
     }
 
-    private void createLogRetrievalThreads(int numLogRetrievalThreads, SubmissionPublisher<LogRetrievedEvent> trackerFactory) {
-        for (int i = 0; i < numLogRetrievalThreads; i++)
-            new LogRetrievalThread(trackerFactory, i).start();
+    private void createLogRetrievalWorkers(
+            NetworkTransport transport,
+            TestbedServerConfiguration configuration,
+            LogRetrievedEventDispatcher trackerFactory,
+            TransferScheduler transferScheduler
+    ) {
+        transport.createWorkerPool(
+                new LogRetrievalMessageDeserializer(),
+                KafkaTopic.LOG_RETRIEVAL,
+                KafkaConstants.CLIENT_ID,
+                configuration.numLogRetrievalThreads,
+                configuration.transferQueueCapacity,
+                configuration.transferBatchSize,
+                new LogRetrievalHandler(trackerFactory, transferScheduler)
+        ).start();
+    }
+
+    private void createFirmwareDistributionWorkers(
+            NetworkTransport transport,
+            TestbedServerConfiguration configuration,
+            TransferScheduler transferScheduler,
+            FirmwareStagingTracker stagingTracker,
+            MetricRegistry metrics
+    ) {
+        transport.createWorkerPool(
+                new FirmwareRetrievalMessageDeserializer(),
+                KafkaTopic.FIRMWARE_RETRIEVAL,
+                KafkaConstants.CLIENT_ID,
+                configuration.numFirmwareDistributionThreads,
+                configuration.transferQueueCapacity,
+                configuration.transferBatchSize,
+                new FirmwareDistributionHandler(transferScheduler, stagingTracker, metrics)
+        ).start();
+    }
+
+    private TransferScheduler createTransferScheduler(TestbedServerConfiguration configuration, MetricRegistry metrics) {
+        final SSHConnectionPool connectionPool = new SSHConnectionPool();
+        final BandwidthBudget bandwidthBudget = new BandwidthBudget(configuration.transferBandwidthLimit * 1024);
+        final FileTransferHandler scpHandler = new SCPFileTransferHandler(connectionPool, bandwidthBudget, metrics);
+
+        final FileTransferHandler fileTransferHandler = switch (configuration.logTransferMode) {
+            case SCP -> scpHandler;
+            case STREAMING -> new StreamingDownloadHandler(scpHandler, connectionPool, bandwidthBudget, metrics);
+        };
+
+        return new TransferScheduler(
+                fileTransferHandler,
+                configuration.maxConcurrentTransfers,
+                configuration.maxTransfersPerNode,
+                metrics
+        );
+    }
+
+    private NetworkTransport createTransport(TestbedServerConfiguration configuration) {
+        return switch (configuration.transport) {
+            case KAFKA -> new KafkaTransport(configuration.kafkaAddress);
+            case IN_MEMORY -> new InMemoryTransport();
+        };
     }
 
-    private void createFirmwareDistributionThreads(int numFirmwareDistributionThreads) {
-        for (int i = 0; i < numFirmwareDistributionThreads; i++)
-            new FirmwareDistributionThread(i).start();
+    private Database createDatabase(TestbedServerConfiguration configuration) {
+        return switch (configuration.databaseBackend) {
+            case YAML -> new YAMLDatabase(configuration.workingDirectory, Duration.ofDays(configuration.archiveAfterDays));
+            case MVSTORE -> new MVStoreDatabase(configuration.workingDirectory);
+        };
     }
 
-    private void registerAuthorizationComponent(Environment environment, YAMLDatabase database) {
+    private void registerAuthorizationComponent(Environment environment, Database database) {
         environment.jersey().register(new AuthDynamicFeature(new BasicCredentialAuthFilter.Builder<User>()
                 .setAuthenticator(new ApiKeyAuthenticator(database.getUserDatabase()))
                 .setAuthorizer(new ApiKeyAuthorizer())
@@ -102,10 +195,12 @@ public class TestbedServerApplication extends Application<TestbedServerConfigura
         environment.jersey().register(new AuthValueFactoryProvider.Binder<>(User.class));
     }
 
-    private List<NodeStatusObject> createHeartbeatThread(List<HardwareNode> hardwareNodeList, int heartbeatInterval) {
+    private List<NodeStatusObject> createHeartbeatThread(NetworkTransport transport, List<HardwareNode> hardwareNodeList, int heartbeatInterval, int batchSize) {
         final HeartbeatThread thread = new HeartbeatThread(
+                transport,
                 hardwareNodeList.stream().map(x -> x.id).collect(Collectors.toList()),
-                heartbeatInterval
+                heartbeatInterval,
+                batchSize
         );
 
         thread.start();
@@ -0,0 +1,37 @@
+package de.cau.testbed.server.command;
+
+import de.cau.testbed.server.config.TestbedServerConfiguration;
+import de.cau.testbed.server.config.datastore.mvstore.MVStoreDatabase;
+import de.cau.testbed.server.config.datastore.yaml.YAMLDatabase;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.util.PathUtil;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One-shot import of users and experiments from the YAML files in the working directory into the MVStore database.
+ * Run with 'import-yaml path/to/configuration.yaml' while the server is stopped.
+ */
+public class ImportYAMLCommand extends ConfiguredCommand<TestbedServerConfiguration> {
+    public ImportYAMLCommand() {
+        super("import-yaml", "Imports users and experiments from the YAML database into the MVStore database");
+    }
+
+    @Override
+    protected void run(Bootstrap<TestbedServerConfiguration> bootstrap, Namespace namespace, TestbedServerConfiguration configuration) throws Exception {
+        PathUtil.initialize(configuration.workingDirectory);
+        PathUtil.migrateToShardedLayout();
+
+        try (YAMLDatabase source = new YAMLDatabase(configuration.workingDirectory, Duration.ofDays(configuration.archiveAfterDays));
+             MVStoreDatabase target = new MVStoreDatabase(configuration.workingDirectory)) {
+            final List<ExperimentDescriptor> experiments = source.getAllExperiments();
+            target.importFrom(experiments, source.getUserDatabase().getUsers());
+
+            System.out.printf("Imported %d experiments%n", experiments.size());
+        }
+    }
+}
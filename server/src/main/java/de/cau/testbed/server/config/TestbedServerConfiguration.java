@@ -1,6 +1,9 @@
 package de.cau.testbed.server.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import de.cau.testbed.server.constants.DatabaseBackend;
+import de.cau.testbed.server.constants.LogTransferMode;
+import de.cau.testbed.server.constants.TransportType;
 import io.dropwizard.core.Configuration;
 
 import java.nio.file.Path;
@@ -15,22 +18,69 @@ public class TestbedServerConfiguration extends Configuration {
 
     public final int numLogRetrievalThreads;
 
+    public final TransportType transport;
     public final String kafkaAddress;
     public final int heartbeatInterval;
 
+    public final DatabaseBackend databaseBackend;
+
+    // Finished experiments are moved out of the YAML database's experiment list after this many days
+    public final int archiveAfterDays;
+
+    // Whether queued experiments are moved forward into time slots freed by cancelled or early stopped experiments
+    public final boolean backfillQueuedExperiments;
+
+    // Maximum number of heartbeats, respectively firmware and log transfer requests, handled per Kafka poll
+    public final int heartbeatBatchSize;
+    public final int transferBatchSize;
+
+    // Maximum number of firmware, respectively log transfer requests waiting for or in handling by the workers
+    public final int transferQueueCapacity;
+
+    // Limits of concurrent firmware and log transfers, in total and per node
+    public final int maxConcurrentTransfers;
+    public final int maxTransfersPerNode;
+
+    // Combined throughput of all transfers in KiB/s, 0 for no limit
+    public final long transferBandwidthLimit;
+
+    public final LogTransferMode logTransferMode;
+
     public TestbedServerConfiguration(
             @JsonProperty("nodes") List<HardwareNode> nodes,
             @JsonProperty("workingDirectory") String workingDirectory,
             @JsonProperty("numFirmwareDistributionThreads") int numFirmwareDistributionThreads,
             @JsonProperty("numLogRetrievalThreads") int numLogRetrievalThreads,
+            @JsonProperty("transport") TransportType transport,
             @JsonProperty("kafkaAddress") String kafkaAddress,
-            @JsonProperty("heartbeatInterval") int heartbeatInterval
+            @JsonProperty("heartbeatInterval") int heartbeatInterval,
+            @JsonProperty("databaseBackend") DatabaseBackend databaseBackend,
+            @JsonProperty("archiveAfterDays") Integer archiveAfterDays,
+            @JsonProperty("backfillQueuedExperiments") boolean backfillQueuedExperiments,
+            @JsonProperty("heartbeatBatchSize") Integer heartbeatBatchSize,
+            @JsonProperty("transferBatchSize") Integer transferBatchSize,
+            @JsonProperty("transferQueueCapacity") Integer transferQueueCapacity,
+            @JsonProperty("maxConcurrentTransfers") Integer maxConcurrentTransfers,
+            @JsonProperty("maxTransfersPerNode") Integer maxTransfersPerNode,
+            @JsonProperty("transferBandwidthLimit") Long transferBandwidthLimit,
+            @JsonProperty("logTransferMode") LogTransferMode logTransferMode
     ) {
         this.nodes = nodes;
         this.workingDirectory = Paths.get(workingDirectory);
         this.numFirmwareDistributionThreads = numFirmwareDistributionThreads;
         this.numLogRetrievalThreads = numLogRetrievalThreads;
+        this.transport = transport != null ? transport : TransportType.KAFKA;
         this.kafkaAddress = kafkaAddress;
         this.heartbeatInterval = heartbeatInterval;
+        this.databaseBackend = databaseBackend != null ? databaseBackend : DatabaseBackend.YAML;
+        this.archiveAfterDays = archiveAfterDays != null ? archiveAfterDays : 30;
+        this.backfillQueuedExperiments = backfillQueuedExperiments;
+        this.heartbeatBatchSize = heartbeatBatchSize != null ? heartbeatBatchSize : 100;
+        this.transferBatchSize = transferBatchSize != null ? transferBatchSize : 20;
+        this.transferQueueCapacity = transferQueueCapacity != null ? transferQueueCapacity : 100;
+        this.maxConcurrentTransfers = maxConcurrentTransfers != null ? maxConcurrentTransfers : 16;
+        this.maxTransfersPerNode = maxTransfersPerNode != null ? maxTransfersPerNode : 2;
+        this.transferBandwidthLimit = transferBandwidthLimit != null ? transferBandwidthLimit : 0;
+        this.logTransferMode = logTransferMode != null ? logTransferMode : LogTransferMode.SCP;
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.api.ExperimentTemplate;
+import de.cau.testbed.server.config.exception.TimeCollisionException;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.constants.ExperimentStatus;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This provides an abstract way to interact with the database. Experiments can be loaded/added etc. this way.
+ */
+public interface Database extends Closeable {
+    /**
+     * Returns an immutable snapshot of all experiments that is not affected by experiments added later on.
+     * Implementations may leave out archived experiments, which are still found by ID and by owner.
+     */
+    List<ExperimentDescriptor> getExperiments();
+
+    /**
+     * Returns the experiments currently in the given status, ordered by start time. Only unfinished statuses are
+     * supported, as finished experiments are not kept at hand.
+     */
+    List<ExperimentDescriptor> getExperimentsWithStatus(ExperimentStatus status);
+
+    /**
+     * Adds a new experiment, but does not schedule it, yet.
+     * @param experimentDescriptor
+     */
+    ExperimentDescriptor addExperiment(ExperimentTemplate experimentDescriptor, User owner, boolean queued) throws TimeCollisionException;
+
+    /**
+     * Moves the experiment to a new start time, keeping its duration.
+     */
+    void rescheduleExperiment(ExperimentDescriptor experimentDescriptor, LocalDateTime start);
+
+    void updateExperiment(ExperimentDescriptor experimentDescriptor);
+
+    List<ExperimentDescriptor> getExperimentsInTimeFrame(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Returns the earliest time stamp not before earliestStart at which none of the given nodes is used by an
+     * unfinished experiment for the given duration.
+     */
+    LocalDateTime findFreeTimeSlot(Collection<String> nodeIds, LocalDateTime earliestStart, Duration duration);
+
+    /**
+     * Like {@link #findFreeTimeSlot(Collection, LocalDateTime, Duration)} for the nodes of the given experiment,
+     * ignoring the time the experiment itself currently occupies.
+     */
+    LocalDateTime findFreeTimeSlot(ExperimentDescriptor experimentDescriptor, LocalDateTime earliestStart, Duration duration);
+
+    Optional<ExperimentDescriptor> getExperimentById(long id);
+
+    /**
+     * Returns all experiments of the given user, ordered by experiment ID.
+     */
+    List<ExperimentDescriptor> getExperimentsByOwner(User owner);
+
+    UserDatabase getUserDatabase();
+}
@@ -0,0 +1,167 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Augmented interval tree over the [start, end] time frames of experiments.
+ * Implemented as a treap ordered by start time (and ID for ties), where every node additionally stores the latest
+ * end time of its subtree. This allows overlap queries in O(log n + k).
+ * <p>
+ * Nodes are immutable and modifications copy the path to the root, so readers can work on the current root without
+ * any locking while writers are synchronized.
+ */
+public class ExperimentIntervalIndex {
+    private volatile Node root;
+
+    public synchronized void add(ExperimentDescriptor descriptor) {
+        root = insert(root, new Node(descriptor));
+    }
+
+    public synchronized void remove(ExperimentDescriptor descriptor) {
+        root = delete(root, descriptor.getStart(), descriptor.getId());
+    }
+
+    /**
+     * Returns all experiments whose time frame overlaps with [start, end] (both inclusive), ordered by start time.
+     */
+    public List<ExperimentDescriptor> getOverlapping(LocalDateTime start, LocalDateTime end) {
+        final List<ExperimentDescriptor> result = new ArrayList<>();
+        collectOverlapping(root, start, end, result);
+
+        return result;
+    }
+
+    private static void collectOverlapping(Node node, LocalDateTime start, LocalDateTime end, List<ExperimentDescriptor> result) {
+        if (node == null || node.maxEnd.isBefore(start))
+            return;
+
+        collectOverlapping(node.left, start, end, result);
+
+        // Everything to the right starts even later
+        if (node.start.isAfter(end))
+            return;
+
+        if (!node.end.isBefore(start))
+            result.add(node.descriptor);
+
+        collectOverlapping(node.right, start, end, result);
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null)
+            return inserted;
+
+        if (inserted.priority > node.priority) {
+            final Node[] split = split(node, inserted.start, inserted.id);
+            return inserted.with(split[0], split[1]);
+        }
+
+        if (compare(inserted.start, inserted.id, node) < 0)
+            return node.with(insert(node.left, inserted), node.right);
+        else
+            return node.with(node.left, insert(node.right, inserted));
+    }
+
+    private static Node delete(Node node, LocalDateTime start, long id) {
+        if (node == null)
+            return null;
+
+        final int comparison = compare(start, id, node);
+
+        if (comparison == 0)
+            return merge(node.left, node.right);
+        else if (comparison < 0)
+            return node.with(delete(node.left, start, id), node.right);
+        else
+            return node.with(node.left, delete(node.right, start, id));
+    }
+
+    /**
+     * Splits the tree into nodes smaller than the given key and nodes greater or equal to the given key.
+     */
+    private static Node[] split(Node node, LocalDateTime start, long id) {
+        if (node == null)
+            return new Node[]{null, null};
+
+        if (compare(start, id, node) > 0) {
+            final Node[] split = split(node.right, start, id);
+            return new Node[]{node.with(node.left, split[0]), split[1]};
+        } else {
+            final Node[] split = split(node.left, start, id);
+            return new Node[]{split[0], node.with(split[1], node.right)};
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority)
+            return left.with(left.left, merge(left.right, right));
+        else
+            return right.with(merge(left, right.left), right.right);
+    }
+
+    private static int compare(LocalDateTime start, long id, Node node) {
+        final int comparison = start.compareTo(node.start);
+
+        return comparison != 0 ? comparison : Long.compare(id, node.id);
+    }
+
+    private static final class Node {
+        private final ExperimentDescriptor descriptor;
+        private final long id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int priority;
+
+        private final Node left;
+        private final Node right;
+        private final LocalDateTime maxEnd;
+
+        Node(ExperimentDescriptor descriptor) {
+            this(descriptor, mix(descriptor.getId()), null, null);
+        }
+
+        private Node(ExperimentDescriptor descriptor, int priority, Node left, Node right) {
+            this.descriptor = descriptor;
+            this.id = descriptor.getId();
+            this.start = descriptor.getStart();
+            this.end = descriptor.getEnd();
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+
+            LocalDateTime maxEnd = end;
+
+            if (left != null && left.maxEnd.isAfter(maxEnd))
+                maxEnd = left.maxEnd;
+
+            if (right != null && right.maxEnd.isAfter(maxEnd))
+                maxEnd = right.maxEnd;
+
+            this.maxEnd = maxEnd;
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(descriptor, priority, left, right);
+        }
+
+        // Treap priorities are derived from the ID, so a rebuilt index always has the same shape
+        private static int mix(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            hash *= 0xD6E8FEB86659FD93L;
+            hash ^= hash >>> 32;
+
+            return (int) hash;
+        }
+    }
+}
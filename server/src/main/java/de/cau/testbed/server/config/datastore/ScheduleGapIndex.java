@@ -0,0 +1,326 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Index of the free time gaps of every node, i.e. the time between the unfinished experiments using that node.
+ * Gaps of a node are kept in a treap ordered by start time, where every node additionally stores the longest gap of
+ * its subtree. Finding the first gap of a node that fits an experiment thus takes O(log n) instead of walking the
+ * whole schedule.
+ * <p>
+ * Experiments occupy their nodes while they are added and not finished, so the index has to be updated on insert and
+ * on status changes. Experiments on the same node are expected not to overlap, which the collision check guarantees.
+ */
+public class ScheduleGapIndex {
+    // Node ID -> root of the node's gap tree, nodes without entry are free all the time
+    private final Map<String, Gap> gapsByNode = new HashMap<>();
+
+    // Experiments currently occupying their nodes, by ID
+    private final Map<Long, Occupation> occupations = new HashMap<>();
+
+    /**
+     * Marks the experiment's nodes as busy during its time frame, unless it has finished already.
+     */
+    public synchronized void add(ExperimentDescriptor descriptor) {
+        if (descriptor.getStatus().isFinished() || occupations.containsKey(descriptor.getId()))
+            return;
+
+        addOccupation(descriptor.getId(), new Occupation(
+                descriptor.getStart(),
+                descriptor.getEnd(),
+                descriptor.getNodes().stream().map(ExperimentNode::id).distinct().toList()
+        ));
+    }
+
+    private void addOccupation(long experimentId, Occupation occupation) {
+        for (String nodeId : occupation.nodeIds())
+            gapsByNode.put(nodeId, occupy(getGaps(nodeId), occupation.start(), occupation.end()));
+
+        occupations.put(experimentId, occupation);
+    }
+
+    /**
+     * Frees the experiment's nodes again, e.g. because it was cancelled or has finished.
+     */
+    public synchronized void remove(ExperimentDescriptor descriptor) {
+        final Occupation occupation = occupations.remove(descriptor.getId());
+
+        if (occupation == null)
+            return;
+
+        for (String nodeId : occupation.nodeIds())
+            gapsByNode.put(nodeId, release(getGaps(nodeId), occupation.start(), occupation.end()));
+    }
+
+    /**
+     * Returns the earliest time stamp not before the given one at which all given nodes are free for the given duration.
+     */
+    public synchronized LocalDateTime findFreeTimeSlot(Collection<String> nodeIds, LocalDateTime earliestStart, Duration duration) {
+        LocalDateTime candidate = earliestStart;
+        boolean fitsAllNodes;
+
+        // Moving the candidate to the next fitting gap of one node may collide with another node, so repeat until stable
+        do {
+            fitsAllNodes = true;
+
+            for (String nodeId : nodeIds) {
+                final LocalDateTime slot = findFirstFit(getGaps(nodeId), candidate, duration);
+
+                if (slot.isAfter(candidate)) {
+                    candidate = slot;
+                    fitsAllNodes = false;
+                }
+            }
+        } while (!fitsAllNodes);
+
+        return candidate;
+    }
+
+    /**
+     * Like {@link #findFreeTimeSlot(Collection, LocalDateTime, Duration)} for the nodes of the given experiment,
+     * treating the time the experiment itself occupies as free.
+     */
+    public synchronized LocalDateTime findFreeTimeSlot(ExperimentDescriptor descriptor, LocalDateTime earliestStart, Duration duration) {
+        final Occupation occupation = occupations.get(descriptor.getId());
+
+        if (occupation == null)
+            return findFreeTimeSlot(descriptor.getNodes().stream().map(ExperimentNode::id).distinct().toList(), earliestStart, duration);
+
+        remove(descriptor);
+        try {
+            return findFreeTimeSlot(occupation.nodeIds(), earliestStart, duration);
+        } finally {
+            addOccupation(descriptor.getId(), occupation);
+        }
+    }
+
+    private Gap getGaps(String nodeId) {
+        return gapsByNode.computeIfAbsent(nodeId, id -> new Gap(LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    private static LocalDateTime findFirstFit(Gap root, LocalDateTime earliestStart, Duration duration) {
+        final Gap currentGap = floor(root, earliestStart);
+
+        if (currentGap != null && !earliestStart.plus(duration).isAfter(currentGap.end))
+            return earliestStart;
+
+        final Gap nextGap = findFirstFitAfter(root, earliestStart, duration);
+
+        if (nextGap == null)
+            throw new IllegalStateException("Schedule has no open end");
+
+        return nextGap.start;
+    }
+
+    /**
+     * Returns the first gap starting strictly after the given time stamp that is at least as long as the given duration.
+     */
+    private static Gap findFirstFitAfter(Gap node, LocalDateTime time, Duration duration) {
+        if (node == null || node.maxLengthSeconds < duration.getSeconds())
+            return null;
+
+        if (!node.start.isAfter(time))
+            return findFirstFitAfter(node.right, time, duration);
+
+        final Gap leftGap = findFirstFitAfter(node.left, time, duration);
+
+        if (leftGap != null)
+            return leftGap;
+
+        if (!node.start.plus(duration).isAfter(node.end))
+            return node;
+
+        return findFirstFitAfter(node.right, time, duration);
+    }
+
+    private static Gap occupy(Gap root, LocalDateTime start, LocalDateTime end) {
+        final List<Gap> overlappingGaps = new ArrayList<>();
+
+        final Gap firstGap = floor(root, start);
+        if (firstGap != null && firstGap.end.isAfter(start))
+            overlappingGaps.add(firstGap);
+
+        for (Gap gap = higher(root, start); gap != null && gap.start.isBefore(end); gap = higher(root, gap.start))
+            overlappingGaps.add(gap);
+
+        for (Gap gap : overlappingGaps) {
+            root = delete(root, gap.start);
+
+            if (gap.start.isBefore(start))
+                root = insert(root, new Gap(gap.start, start));
+
+            if (gap.end.isAfter(end))
+                root = insert(root, new Gap(end, gap.end));
+        }
+
+        return root;
+    }
+
+    private static Gap release(Gap root, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime mergedStart = start;
+        LocalDateTime mergedEnd = end;
+
+        final Gap previousGap = floor(root, start);
+        if (previousGap != null && !previousGap.end.isBefore(start)) {
+            root = delete(root, previousGap.start);
+            mergedStart = previousGap.start;
+            mergedEnd = max(mergedEnd, previousGap.end);
+        }
+
+        for (Gap gap = higher(root, start); gap != null && !gap.start.isAfter(mergedEnd); gap = higher(root, start)) {
+            root = delete(root, gap.start);
+            mergedEnd = max(mergedEnd, gap.end);
+        }
+
+        return insert(root, new Gap(mergedStart, mergedEnd));
+    }
+
+    private static Gap floor(Gap node, LocalDateTime time) {
+        Gap candidate = null;
+
+        while (node != null) {
+            if (node.start.isAfter(time)) {
+                node = node.left;
+            } else {
+                candidate = node;
+                node = node.right;
+            }
+        }
+
+        return candidate;
+    }
+
+    private static Gap higher(Gap node, LocalDateTime time) {
+        Gap candidate = null;
+
+        while (node != null) {
+            if (node.start.isAfter(time)) {
+                candidate = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+
+        return candidate;
+    }
+
+    private static Gap insert(Gap node, Gap inserted) {
+        if (node == null)
+            return inserted;
+
+        if (inserted.priority > node.priority) {
+            final Gap[] split = split(node, inserted.start);
+            return inserted.with(split[0], split[1]);
+        }
+
+        if (inserted.start.isBefore(node.start))
+            return node.with(insert(node.left, inserted), node.right);
+        else
+            return node.with(node.left, insert(node.right, inserted));
+    }
+
+    private static Gap delete(Gap node, LocalDateTime start) {
+        if (node == null)
+            return null;
+
+        final int comparison = start.compareTo(node.start);
+
+        if (comparison == 0)
+            return merge(node.left, node.right);
+        else if (comparison < 0)
+            return node.with(delete(node.left, start), node.right);
+        else
+            return node.with(node.left, delete(node.right, start));
+    }
+
+    /**
+     * Splits the tree into gaps starting before the given time stamp and gaps starting at or after it.
+     */
+    private static Gap[] split(Gap node, LocalDateTime start) {
+        if (node == null)
+            return new Gap[]{null, null};
+
+        if (start.isAfter(node.start)) {
+            final Gap[] split = split(node.right, start);
+            return new Gap[]{node.with(node.left, split[0]), split[1]};
+        } else {
+            final Gap[] split = split(node.left, start);
+            return new Gap[]{split[0], node.with(split[1], node.right)};
+        }
+    }
+
+    private static Gap merge(Gap left, Gap right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority)
+            return left.with(left.left, merge(left.right, right));
+        else
+            return right.with(merge(left, right.left), right.right);
+    }
+
+    private static LocalDateTime max(LocalDateTime first, LocalDateTime second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private record Occupation(LocalDateTime start, LocalDateTime end, List<String> nodeIds) {
+    }
+
+    private static final class Gap {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int priority;
+
+        private final Gap left;
+        private final Gap right;
+
+        // Length of the longest gap in this subtree, rounded down to full seconds
+        private final long maxLengthSeconds;
+
+        Gap(LocalDateTime start, LocalDateTime end) {
+            this(start, end, mix(start), null, null);
+        }
+
+        private Gap(LocalDateTime start, LocalDateTime end, int priority, Gap left, Gap right) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+
+            long maxLengthSeconds = ChronoUnit.SECONDS.between(start, end);
+
+            if (left != null)
+                maxLengthSeconds = Math.max(maxLengthSeconds, left.maxLengthSeconds);
+
+            if (right != null)
+                maxLengthSeconds = Math.max(maxLengthSeconds, right.maxLengthSeconds);
+
+            this.maxLengthSeconds = maxLengthSeconds;
+        }
+
+        Gap with(Gap left, Gap right) {
+            return new Gap(start, end, priority, left, right);
+        }
+
+        private static int mix(LocalDateTime start) {
+            long hash = (start.toEpochSecond(ZoneOffset.UTC) * 1_000_000_007L + start.getNano()) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            hash *= 0xD6E8FEB86659FD93L;
+            hash ^= hash >>> 32;
+
+            return (int) hash;
+        }
+    }
+}
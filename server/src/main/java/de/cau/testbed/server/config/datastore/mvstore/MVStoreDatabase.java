@@ -0,0 +1,474 @@
+package de.cau.testbed.server.config.datastore.mvstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cau.testbed.server.api.ExperimentTemplate;
+import de.cau.testbed.server.config.datastore.Database;
+import de.cau.testbed.server.config.datastore.ScheduleGapIndex;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.datastore.UserDatabase;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Database backed by an embedded MVStore file in the working directory.
+ * Experiments are stored by ID, with separate index maps on start, end, status and owner, so that all queries are
+ * range scans instead of scans over the whole history. Queries for a time frame scan whichever of the start and end
+ * index has fewer candidates, e.g. only the experiments ending after the time frame's start for upcoming time frames.
+ * <p>
+ * Every change is committed as one transaction and rolled back if it fails. Reads are not isolated from a change in
+ * progress, though: they see its writes before the commit, and may see writes that are rolled back afterwards.
+ * <p>
+ * Descriptors of experiments that have not finished are kept in memory, so that all callers synchronize on the same
+ * {@link ExperimentDescriptor#getLockObject()}.
+ */
+public class MVStoreDatabase implements Database {
+    private static final String STORE_FILE_NAME = "testbed.mv.db";
+    private static final String NEXT_ID_KEY = "nextExperimentId";
+    // No longer maintained, as the end index replaced it
+    private static final String MAX_DURATION_KEY = "maxExperimentDuration";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<ExperimentNode>> NODE_LIST_TYPE = new TypeReference<>() {};
+
+    private final MVStore store;
+    private final MVStoreUserDatabase userDatabase;
+
+    // ID -> [name, owner, status, start, end, queued], time stamps are stored as nanoseconds since the epoch
+    private final MVMap<Long, Object[]> experiments;
+    // ID -> JSON list of nodes
+    private final MVMap<Long, String> experimentNodes;
+
+    // Index maps, all keys end with the experiment ID and values are unused
+    private final MVMap<Object[], Boolean> startIndex;
+    private final MVMap<Object[], Boolean> endIndex;
+    private final MVMap<Object[], Boolean> statusIndex;
+    private final MVMap<Object[], Boolean> ownerIndex;
+
+    private final MVMap<String, Long> meta;
+
+    private final Map<Long, MVStoreExperimentDescriptor> unfinishedExperiments = new ConcurrentHashMap<>();
+
+    // Free time between the unfinished experiments of every node, rebuilt on startup
+    private final ScheduleGapIndex scheduleGaps = new ScheduleGapIndex();
+
+    public MVStoreDatabase(Path workingDirectory) {
+        this.store = new MVStore.Builder()
+                .fileName(workingDirectory.resolve(STORE_FILE_NAME).toString())
+                .autoCommitDisabled()
+                .open();
+
+        final boolean hasEndIndex = store.hasMap("endIndex");
+
+        this.experiments = store.openMap("experiments");
+        this.experimentNodes = store.openMap("experimentNodes");
+        this.startIndex = store.openMap("startIndex");
+        this.endIndex = store.openMap("endIndex");
+        this.statusIndex = store.openMap("statusIndex");
+        this.ownerIndex = store.openMap("ownerIndex");
+        this.meta = store.openMap("meta");
+        this.userDatabase = new MVStoreUserDatabase(store, meta);
+
+        // Stores written by a version without the end index are indexed once
+        if (!hasEndIndex) {
+            for (Map.Entry<Long, Object[]> entry : experiments.entrySet())
+                endIndex.put(new Object[]{entry.getValue()[4], entry.getKey()}, Boolean.TRUE);
+        }
+
+        meta.remove(MAX_DURATION_KEY);
+
+        // Persist newly created maps, so that a rollback does not close them again
+        store.commit();
+
+        // Only the unfinished experiments are loaded, found through the status index instead of the whole history
+        for (ExperimentStatus status : ExperimentStatus.values()) {
+            if (status.isFinished())
+                continue;
+
+            for (Iterator<Object[]> iterator = statusIndex.keyIterator(new Object[]{status.name()}); iterator.hasNext(); ) {
+                final Object[] key = iterator.next();
+
+                if (!status.name().equals(key[0]))
+                    break;
+
+                final long id = (Long) key[2];
+                final MVStoreExperimentDescriptor descriptor = createDescriptor(id, experiments.get(id));
+
+                unfinishedExperiments.put(id, descriptor);
+                scheduleGaps.add(descriptor);
+            }
+        }
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperiments() {
+        final List<ExperimentDescriptor> descriptors = new ArrayList<>();
+
+        for (Map.Entry<Long, Object[]> entry : experiments.entrySet())
+            descriptors.add(getDescriptor(entry.getKey(), entry.getValue()));
+
+        return Collections.unmodifiableList(descriptors);
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsWithStatus(ExperimentStatus status) {
+        if (status.isFinished())
+            throw new IllegalArgumentException("Experiments can only be listed by unfinished status, not " + status);
+
+        final List<ExperimentDescriptor> descriptors = new ArrayList<>();
+
+        // The status index is ordered by status and start time
+        for (Iterator<Object[]> iterator = statusIndex.keyIterator(new Object[]{status.name()}); iterator.hasNext(); ) {
+            final Object[] key = iterator.next();
+
+            if (!status.name().equals(key[0]))
+                break;
+
+            final long id = (Long) key[2];
+            descriptors.add(getDescriptor(id, experiments.get(id)));
+        }
+
+        return descriptors;
+    }
+
+    @Override
+    public ExperimentDescriptor addExperiment(ExperimentTemplate template, User owner, boolean queued) {
+        synchronized (store) {
+            final long id = meta.getOrDefault(NEXT_ID_KEY, 1L);
+
+            return inTransaction(store, () -> {
+                meta.put(NEXT_ID_KEY, id + 1);
+                return putExperiment(id, template.name, owner, ExperimentStatus.CREATED, template.start, template.end, queued, template.nodes);
+            });
+        }
+    }
+
+    private MVStoreExperimentDescriptor putExperiment(
+            long id,
+            String name,
+            User owner,
+            ExperimentStatus status,
+            LocalDateTime start,
+            LocalDateTime end,
+            boolean queued,
+            List<ExperimentNode> nodes
+    ) {
+        final long startKey = toKey(start);
+        final long endKey = toKey(end);
+
+        experiments.put(id, new Object[]{name, owner.getId(), status.name(), startKey, endKey, queued});
+        experimentNodes.put(id, writeNodes(nodes));
+
+        startIndex.put(new Object[]{startKey, id}, Boolean.TRUE);
+        endIndex.put(new Object[]{endKey, id}, Boolean.TRUE);
+        statusIndex.put(new Object[]{status.name(), startKey, id}, Boolean.TRUE);
+        ownerIndex.put(new Object[]{owner.getId(), id}, Boolean.TRUE);
+
+        final MVStoreExperimentDescriptor descriptor = new MVStoreExperimentDescriptor(
+                this, id, name, owner, status, start, end, queued, nodes
+        );
+
+        if (!status.isFinished()) {
+            unfinishedExperiments.put(id, descriptor);
+            scheduleGaps.add(descriptor);
+        }
+
+        return descriptor;
+    }
+
+    @Override
+    public void updateExperiment(ExperimentDescriptor experimentDescriptor) {
+        final long id = experimentDescriptor.getId();
+        final ExperimentStatus status = experimentDescriptor.getStatus();
+
+        synchronized (store) {
+            inTransaction(store, () -> {
+                final Object[] experiment = experiments.get(id);
+
+                if (experiment == null)
+                    return null;
+
+                final Object[] updatedExperiment = experiment.clone();
+                updatedExperiment[2] = status.name();
+
+                statusIndex.remove(new Object[]{experiment[2], experiment[3], id});
+                statusIndex.put(new Object[]{status.name(), experiment[3], id}, Boolean.TRUE);
+                experiments.put(id, updatedExperiment);
+
+                return null;
+            });
+        }
+
+        // Finished experiments are only loaded on demand
+        if (status.isFinished()) {
+            unfinishedExperiments.remove(id);
+            scheduleGaps.remove(experimentDescriptor);
+        }
+    }
+
+    @Override
+    public void rescheduleExperiment(ExperimentDescriptor experimentDescriptor, LocalDateTime start) {
+        final MVStoreExperimentDescriptor descriptor = (MVStoreExperimentDescriptor) experimentDescriptor;
+        final long id = descriptor.getId();
+        final LocalDateTime end = start.plus(Duration.between(descriptor.getStart(), descriptor.getEnd()));
+        final long startKey = toKey(start);
+        final long endKey = toKey(end);
+
+        synchronized (store) {
+            inTransaction(store, () -> {
+                final Object[] experiment = experiments.get(id);
+
+                if (experiment == null)
+                    return null;
+
+                final Object[] updatedExperiment = experiment.clone();
+                updatedExperiment[3] = startKey;
+                updatedExperiment[4] = endKey;
+
+                startIndex.remove(new Object[]{experiment[3], id});
+                endIndex.remove(new Object[]{experiment[4], id});
+                statusIndex.remove(new Object[]{experiment[2], experiment[3], id});
+
+                startIndex.put(new Object[]{startKey, id}, Boolean.TRUE);
+                endIndex.put(new Object[]{endKey, id}, Boolean.TRUE);
+                statusIndex.put(new Object[]{experiment[2], startKey, id}, Boolean.TRUE);
+                experiments.put(id, updatedExperiment);
+
+                return null;
+            });
+
+            scheduleGaps.remove(descriptor);
+            descriptor.setTimeFrame(start, end);
+            scheduleGaps.add(descriptor);
+        }
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsInTimeFrame(LocalDateTime start, LocalDateTime end) {
+        final long startKey = toKey(start);
+        final long endKey = toKey(end);
+        final List<ExperimentDescriptor> matchingExperiments = new ArrayList<>();
+
+        // Experiments overlap the time frame if they start before its end and end after its start. The index range of
+        // the condition fewer experiments meet is scanned, the other condition is checked per experiment.
+        final Object[] firstEndingKey = {startKey, Long.MIN_VALUE};
+        final Object[] lastStartingKey = {endKey, Long.MAX_VALUE};
+        final long endingAfterStart = endIndex.sizeAsLong() - getInsertionIndex(endIndex, firstEndingKey);
+        final long startingBeforeEnd = getInsertionIndex(startIndex, lastStartingKey);
+
+        if (endingAfterStart < startingBeforeEnd) {
+            for (Iterator<Object[]> iterator = endIndex.keyIterator(firstEndingKey); iterator.hasNext(); ) {
+                final long id = (Long) iterator.next()[1];
+                final Object[] experiment = experiments.get(id);
+
+                if ((Long) experiment[3] <= endKey)
+                    matchingExperiments.add(getDescriptor(id, experiment));
+            }
+
+            // Ordered by start time, like the results of the start index
+            matchingExperiments.sort(Comparator.comparing(ExperimentDescriptor::getStart).thenComparingLong(ExperimentDescriptor::getId));
+        } else {
+            for (Iterator<Object[]> iterator = startIndex.keyIterator(null); iterator.hasNext(); ) {
+                final Object[] key = iterator.next();
+
+                if ((Long) key[0] > endKey)
+                    break;
+
+                final Object[] experiment = experiments.get((Long) key[1]);
+
+                if ((Long) experiment[4] >= startKey)
+                    matchingExperiments.add(getDescriptor((Long) key[1], experiment));
+            }
+        }
+
+        return matchingExperiments;
+    }
+
+    /**
+     * @return the number of keys in the index that are smaller than the given one
+     */
+    private static long getInsertionIndex(MVMap<Object[], Boolean> index, Object[] key) {
+        final long keyIndex = index.getKeyIndex(key);
+
+        return keyIndex < 0 ? -keyIndex - 1 : keyIndex;
+    }
+
+    @Override
+    public LocalDateTime findFreeTimeSlot(Collection<String> nodeIds, LocalDateTime earliestStart, Duration duration) {
+        return scheduleGaps.findFreeTimeSlot(nodeIds, earliestStart, duration);
+    }
+
+    @Override
+    public LocalDateTime findFreeTimeSlot(ExperimentDescriptor experimentDescriptor, LocalDateTime earliestStart, Duration duration) {
+        return scheduleGaps.findFreeTimeSlot(experimentDescriptor, earliestStart, duration);
+    }
+
+    @Override
+    public Optional<ExperimentDescriptor> getExperimentById(long id) {
+        final MVStoreExperimentDescriptor descriptor = unfinishedExperiments.get(id);
+
+        if (descriptor != null)
+            return Optional.of(descriptor);
+
+        final Object[] experiment = experiments.get(id);
+
+        if (experiment == null)
+            return Optional.empty();
+
+        return Optional.of(getDescriptor(id, experiment));
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsByOwner(User owner) {
+        final List<ExperimentDescriptor> ownedExperiments = new ArrayList<>();
+
+        for (Iterator<Object[]> iterator = ownerIndex.keyIterator(new Object[]{owner.getId()}); iterator.hasNext(); ) {
+            final Object[] key = iterator.next();
+
+            if ((Long) key[0] != owner.getId())
+                break;
+
+            getExperimentById((Long) key[1]).ifPresent(ownedExperiments::add);
+        }
+
+        return ownedExperiments;
+    }
+
+    @Override
+    public UserDatabase getUserDatabase() {
+        return userDatabase;
+    }
+
+    /**
+     * Copies the given users and experiments of another database into this one, keeping their IDs.
+     * Only allowed as long as this database does not contain any experiments.
+     */
+    public void importFrom(Collection<ExperimentDescriptor> sourceExperiments, Collection<? extends User> users) {
+        synchronized (store) {
+            if (!experiments.isEmpty())
+                throw new IllegalStateException("Database already contains experiments");
+
+            inTransaction(store, () -> {
+                final Map<Long, User> importedUsers = new HashMap<>();
+
+                for (User user : users)
+                    importedUsers.put(user.getId(), userDatabase.putUser(user));
+
+                long nextId = 1;
+
+                for (ExperimentDescriptor experiment : sourceExperiments) {
+                    putExperiment(
+                            experiment.getId(),
+                            experiment.getName(),
+                            importedUsers.get(experiment.getOwner().getId()),
+                            experiment.getStatus(),
+                            experiment.getStart(),
+                            experiment.getEnd(),
+                            experiment.isQueued(),
+                            experiment.getNodes()
+                    );
+
+                    nextId = Math.max(nextId, experiment.getId() + 1);
+                }
+
+                meta.put(NEXT_ID_KEY, nextId);
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    List<ExperimentNode> loadNodes(long id) {
+        final String nodes = experimentNodes.get(id);
+
+        if (nodes == null)
+            return Collections.emptyList();
+
+        try {
+            return MAPPER.readValue(nodes, NODE_LIST_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ExperimentDescriptor getDescriptor(long id, Object[] experiment) {
+        final MVStoreExperimentDescriptor descriptor = unfinishedExperiments.get(id);
+
+        return descriptor != null ? descriptor : createDescriptor(id, experiment);
+    }
+
+    private MVStoreExperimentDescriptor createDescriptor(long id, Object[] experiment) {
+        final ExperimentStatus status = ExperimentStatus.valueOf((String) experiment[2]);
+        final User owner = userDatabase.getUserById((Long) experiment[1]).orElseThrow(() -> new IllegalArgumentException(
+                String.format("Could not instantiate experiment %d; user not found!", id)
+        ));
+
+        return new MVStoreExperimentDescriptor(
+                this,
+                id,
+                (String) experiment[0],
+                owner,
+                status,
+                fromKey((Long) experiment[3]),
+                fromKey((Long) experiment[4]),
+                experiment.length > 5 && (Boolean) experiment[5],
+                status.isFinished() ? null : loadNodes(id)
+        );
+    }
+
+    /**
+     * Runs the given changes and commits them, or rolls them back if they fail.
+     * Callers have to synchronize on the store, as MVStore commits and rolls back all pending changes at once.
+     * Concurrent readers do not synchronize and see the changes as they are made, not only once committed.
+     */
+    static <T> T inTransaction(MVStore store, Supplier<T> changes) {
+        try {
+            final T result = changes.get();
+            store.commit();
+            return result;
+        } catch (RuntimeException e) {
+            store.rollback();
+            throw e;
+        }
+    }
+
+    private static String writeNodes(List<ExperimentNode> nodes) {
+        try {
+            return MAPPER.writeValueAsString(nodes);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long toKey(LocalDateTime dateTime) {
+        final long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+
+        // Open-ended queries may use LocalDateTime.MIN or MAX, which are out of range
+        if (seconds >= Long.MAX_VALUE / 1_000_000_000L)
+            return Long.MAX_VALUE;
+
+        if (seconds <= Long.MIN_VALUE / 1_000_000_000L)
+            return Long.MIN_VALUE;
+
+        return seconds * 1_000_000_000L + dateTime.getNano();
+    }
+
+    private static LocalDateTime fromKey(long key) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(key, 1_000_000_000L), (int) Math.floorMod(key, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,132 @@
+package de.cau.testbed.server.config.datastore.mvstore;
+
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Wrapper for the {@link ExperimentDescriptor} interface for the MVStore database.
+ * Status changes are written through to the store in a transaction. Nodes of finished experiments are only read from
+ * the store when accessed.
+ */
+public class MVStoreExperimentDescriptor implements ExperimentDescriptor {
+    private final MVStoreDatabase database;
+    private final long id;
+    private final String name;
+    private final User owner;
+    private final boolean queued;
+    private volatile ExperimentStatus status;
+
+    // Only changed by the database when rescheduling the experiment
+    private volatile LocalDateTime start;
+    private volatile LocalDateTime end;
+
+    // Only set while the experiment is not finished, null otherwise
+    private volatile List<ExperimentNode> pinnedNodes;
+
+    // Used for synchronization of reading and writing the experiment status
+    private final Object lockObject = new Object();
+
+    MVStoreExperimentDescriptor(
+            MVStoreDatabase database,
+            long id,
+            String name,
+            User owner,
+            ExperimentStatus status,
+            LocalDateTime start,
+            LocalDateTime end,
+            boolean queued,
+            List<ExperimentNode> nodes
+    ) {
+        this.database = database;
+        this.id = id;
+        this.name = name;
+        this.owner = owner;
+        this.status = status;
+        this.start = start;
+        this.end = end;
+        this.queued = queued;
+        this.pinnedNodes = status.isFinished() ? null : nodes;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public User getOwner() {
+        return owner;
+    }
+
+    @Override
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    @Override
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean isQueued() {
+        return queued;
+    }
+
+    void setTimeFrame(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public ExperimentStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(ExperimentStatus status) {
+        this.status = status;
+
+        if (status.isFinished())
+            pinnedNodes = null;
+
+        database.updateExperiment(this);
+    }
+
+    @Override
+    public List<ExperimentNode> getNodes() {
+        final List<ExperimentNode> nodes = pinnedNodes;
+
+        if (nodes != null)
+            return nodes;
+
+        return database.loadNodes(id);
+    }
+
+    @Override
+    public Object getLockObject() {
+        return lockObject;
+    }
+
+    @Override
+    public String toString() {
+        return "MVStoreExperimentDescriptor{" +
+                "id='" + id + '\'' +
+                ", owner='" + owner + '\'' +
+                ", name='" + name + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", nodes=" + pinnedNodes +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+package de.cau.testbed.server.config.datastore.mvstore;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.constants.UserType;
+
+/**
+ * User as stored in the MVStore database.
+ * Users are created on every lookup, so equality is based on their values instead of their identity.
+ */
+public record MVStoreUser(
+        @JsonProperty("name") String name,
+        @JsonProperty("id") long id,
+        @JsonProperty("apiKey") String apiKey,
+        @JsonProperty("type") UserType type
+) implements User {
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public UserType getType() {
+        return type;
+    }
+
+    @Override
+    public String getApiKey() {
+        return apiKey;
+    }
+}
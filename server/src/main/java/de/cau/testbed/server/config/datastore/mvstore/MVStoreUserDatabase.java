@@ -0,0 +1,78 @@
+package de.cau.testbed.server.config.datastore.mvstore;
+
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.datastore.UserDatabase;
+import de.cau.testbed.server.constants.UserType;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * User database stored in the same MVStore file as the experiments.
+ * Users are kept in a map by ID and indexed by their API key.
+ */
+public class MVStoreUserDatabase implements UserDatabase {
+    private static final String NEXT_ID_KEY = "nextUserId";
+
+    private final MVStore store;
+
+    // ID -> [name, API key, type]
+    private final MVMap<Long, Object[]> users;
+    private final MVMap<String, Long> usersByApiKey;
+    private final MVMap<String, Long> meta;
+
+    MVStoreUserDatabase(MVStore store, MVMap<String, Long> meta) {
+        this.store = store;
+        this.meta = meta;
+        this.users = store.openMap("users");
+        this.usersByApiKey = store.openMap("usersByApiKey");
+    }
+
+    @Override
+    public Optional<User> getUserById(long id) {
+        final Object[] user = users.get(id);
+
+        if (user == null)
+            return Optional.empty();
+
+        return Optional.of(new MVStoreUser((String) user[0], id, (String) user[1], UserType.valueOf((String) user[2])));
+    }
+
+    @Override
+    public Optional<User> getUserByApiKey(String apiKey) {
+        final Long id = usersByApiKey.get(apiKey);
+
+        if (id == null)
+            return Optional.empty();
+
+        return getUserById(id);
+    }
+
+    @Override
+    public User addUser(String name, UserType type) {
+        synchronized (store) {
+            final long id = meta.getOrDefault(NEXT_ID_KEY, 1L);
+
+            return MVStoreDatabase.inTransaction(store, () -> {
+                meta.put(NEXT_ID_KEY, id + 1);
+                return putUser(new MVStoreUser(name, id, UUID.randomUUID().toString(), type));
+            });
+        }
+    }
+
+    /**
+     * Stores a user with a given ID and API key, used when importing from another database.
+     * Must be called within a transaction.
+     */
+    User putUser(User user) {
+        users.put(user.getId(), new Object[]{user.getName(), user.getApiKey(), user.getType().name()});
+        usersByApiKey.put(user.getApiKey(), user.getId());
+
+        if (meta.getOrDefault(NEXT_ID_KEY, 1L) <= user.getId())
+            meta.put(NEXT_ID_KEY, user.getId() + 1);
+
+        return new MVStoreUser(user.getName(), user.getId(), user.getApiKey(), user.getType());
+    }
+}
@@ -0,0 +1,166 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentModule;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.DeviceType;
+import de.cau.testbed.server.constants.ExperimentStatus;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Compact binary copy of 'experiments.yaml' and the 'configuration.yaml' files of all unfinished experiments.
+ * Loading it takes a single sequential read instead of parsing YAML files, which speeds up server startup.
+ * <p>
+ * The snapshot stores the modification time and size of the 'experiments.yaml' it was written with and is only used
+ * if those still match. YAML stays the authoritative format, so editing 'experiments.yaml' by hand invalidates it.
+ */
+class YAMLBinarySnapshot {
+    private static final int MAGIC = 0x54425353; // "TBSS"
+    private static final int FORMAT_VERSION = 2;
+
+    record Content(YAMLExperimentList experimentList, Map<Long, YAMLExperimentDetail> experimentDetails) {
+    }
+
+    private YAMLBinarySnapshot() {}
+
+    static void write(Path snapshotFile, Path experimentsFile, List<ExperimentDescriptor> experiments, long nextId) throws IOException {
+        final Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(Files.getLastModifiedTime(experimentsFile).toMillis());
+            output.writeLong(Files.size(experimentsFile));
+            output.writeLong(nextId);
+            output.writeInt(experiments.size());
+
+            for (ExperimentDescriptor experiment : experiments) {
+                final ExperimentStatus status = experiment.getStatus();
+
+                output.writeLong(experiment.getId());
+                output.writeLong(experiment.getOwner().getId());
+                writeString(output, experiment.getName());
+                output.writeUTF(status.name());
+                writeDateTime(output, experiment.getStart());
+                writeDateTime(output, experiment.getEnd());
+                output.writeBoolean(experiment.isQueued());
+
+                // Nodes of finished experiments are loaded lazily anyway
+                output.writeBoolean(!status.isFinished());
+
+                if (!status.isFinished())
+                    writeNodes(output, experiment.getNodes());
+            }
+        }
+
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot if it exists and was written for the current 'experiments.yaml'.
+     */
+    static Optional<Content> read(Path snapshotFile, Path experimentsFile) throws IOException {
+        if (!Files.isRegularFile(snapshotFile) || !Files.isRegularFile(experimentsFile))
+            return Optional.empty();
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(snapshotFile)));
+
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION)
+            return Optional.empty();
+
+        if (input.readLong() != Files.getLastModifiedTime(experimentsFile).toMillis() || input.readLong() != Files.size(experimentsFile))
+            return Optional.empty();
+
+        final long nextId = input.readLong();
+        final int experimentCount = input.readInt();
+
+        final List<YAMLExperimentInfo> experiments = new ArrayList<>(experimentCount);
+        final Map<Long, YAMLExperimentDetail> experimentDetails = new HashMap<>();
+
+        for (int i = 0; i < experimentCount; i++) {
+            final long id = input.readLong();
+            final long owner = input.readLong();
+            final String name = readString(input);
+            final ExperimentStatus status = ExperimentStatus.valueOf(input.readUTF());
+            final LocalDateTime start = readDateTime(input);
+            final LocalDateTime end = readDateTime(input);
+            final boolean queued = input.readBoolean();
+
+            experiments.add(new YAMLExperimentInfo(name, owner, id, status, start, end, queued));
+
+            if (input.readBoolean())
+                experimentDetails.put(id, new YAMLExperimentDetail(readNodes(input)));
+        }
+
+        return Optional.of(new Content(new YAMLExperimentList(experiments, nextId), experimentDetails));
+    }
+
+    private static void writeNodes(DataOutputStream output, List<ExperimentNode> nodes) throws IOException {
+        output.writeInt(nodes.size());
+
+        for (ExperimentNode node : nodes) {
+            output.writeUTF(node.id());
+            output.writeInt(node.modules().size());
+
+            for (ExperimentModule module : node.modules()) {
+                output.writeUTF(module.moduleType.name());
+                writeString(output, module.firmware);
+                output.writeBoolean(module.gpioTracer);
+                output.writeBoolean(module.serialDump);
+                output.writeBoolean(module.serialForward);
+            }
+        }
+    }
+
+    private static List<ExperimentNode> readNodes(DataInputStream input) throws IOException {
+        final int nodeCount = input.readInt();
+        final List<ExperimentNode> nodes = new ArrayList<>(nodeCount);
+
+        for (int i = 0; i < nodeCount; i++) {
+            final String nodeId = input.readUTF();
+            final int moduleCount = input.readInt();
+            final List<ExperimentModule> modules = new ArrayList<>(moduleCount);
+
+            for (int j = 0; j < moduleCount; j++) {
+                modules.add(new ExperimentModule(
+                        DeviceType.valueOf(input.readUTF()),
+                        readString(input),
+                        input.readBoolean(),
+                        input.readBoolean(),
+                        input.readBoolean()
+                ));
+            }
+
+            nodes.add(new ExperimentNode(nodeId, modules));
+        }
+
+        return nodes;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null)
+            output.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream output, LocalDateTime dateTime) throws IOException {
+        output.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        output.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream input) throws IOException {
+        return LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC);
+    }
+}
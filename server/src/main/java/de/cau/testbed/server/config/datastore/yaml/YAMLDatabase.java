@@ -0,0 +1,543 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.util.PathUtil;
+import de.cau.testbed.server.api.ExperimentTemplate;
+import de.cau.testbed.server.config.YAMLParser;
+import de.cau.testbed.server.config.datastore.Database;
+import de.cau.testbed.server.config.datastore.ExperimentIntervalIndex;
+import de.cau.testbed.server.config.datastore.ScheduleGapIndex;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * General wrapper for the YAML 'database' in the background.
+ * Ties together both the central 'experiments.yaml' file and the individual 'configuration.yaml' configuration files
+ * that hold information about nodes and modules in the experiment sub-folders.
+ * <p>
+ * Changes to the experiment list are appended to a journal ({@link YAMLExperimentJournal}) and only periodically
+ * compacted into 'experiments.yaml'.
+ * <p>
+ * Finished experiments are moved into the {@link YAMLExperimentArchive} once they are older than the configured
+ * archive age, so that the experiments held in memory and in 'experiments.yaml' do not grow with the testbed's history.
+ */
+public class YAMLDatabase implements Database {
+    private static final Logger LOGGER = LoggerFactory.getLogger(YAMLDatabase.class);
+    private static final String EXPERIMENTS_FILE_NAME = "experiments.yaml";
+    private static final String JOURNAL_FILE_NAME = "experiments.journal";
+    private static final String SNAPSHOT_FILE_NAME = "experiments.snapshot";
+    private static final int COMPACTION_THRESHOLD = 1_000;
+    private static final long COMPACTION_CHECK_INTERVAL_MS = 60_000;
+    private static final long ARCHIVE_CHECK_INTERVAL_MS = 3_600_000;
+    private static final int DETAIL_CACHE_SIZE = 256;
+    private static final Comparator<ExperimentDescriptor> START_ORDER = Comparator
+            .comparing(ExperimentDescriptor::getStart)
+            .thenComparingLong(ExperimentDescriptor::getId);
+
+    private final Path workingDirectory;
+
+    private final YAMLUserDatabase userDatabase;
+
+    private long nextId;
+
+    // Immutable snapshot of all experiments that have not been archived, replaced as a whole on insert so readers never need to lock
+    private volatile List<ExperimentDescriptor> experimentDescriptors;
+
+    // Index over the experiments' time frames for time frame queries
+    private final ExperimentIntervalIndex timeIndex = new ExperimentIntervalIndex();
+
+    // Indices for lookups by experiment ID and by owner ID, the latter being sorted by experiment ID
+    private final Map<Long, ExperimentDescriptor> experimentsById = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableMap<Long, ExperimentDescriptor>> experimentsByOwner = new ConcurrentHashMap<>();
+
+    // Free time between the unfinished experiments of every node, used to find slots for queued experiments
+    private final ScheduleGapIndex scheduleGaps = new ScheduleGapIndex();
+
+    // Unfinished experiments by status, each ordered by start time
+    private final Map<ExperimentStatus, NavigableSet<ExperimentDescriptor>> unfinishedByStatus = createStatusIndex();
+
+    // Holds the nodes of finished experiments, which are loaded lazily
+    private final YAMLExperimentDetailCache detailCache = new YAMLExperimentDetailCache(DETAIL_CACHE_SIZE);
+
+    private final YAMLExperimentJournal journal;
+
+    private final YAMLExperimentArchive archive;
+
+    // Finished experiments are archived once their end lies further in the past than this
+    private final Duration archiveAge;
+
+    // Appending to the journal only needs the read lock, compaction needs exclusive access to truncate it
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Timer compactionTimer = new Timer(true);
+
+    // Whether the binary snapshot matches the current 'experiments.yaml'
+    private volatile boolean snapshotUpToDate;
+
+    // Cleared when experiments are removed, which the journal does not record
+    private volatile boolean experimentsFileUpToDate = true;
+
+    public YAMLDatabase(Path workingDirectory, Duration archiveAge) {
+        this.workingDirectory = workingDirectory;
+        this.archiveAge = archiveAge;
+        this.userDatabase = new YAMLUserDatabase(workingDirectory);
+        this.archive = new YAMLExperimentArchive(workingDirectory);
+
+        try {
+            this.journal = new YAMLExperimentJournal(workingDirectory.resolve(JOURNAL_FILE_NAME));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Prefer the binary snapshot and only parse the YAML files if it does not match the current 'experiments.yaml'
+        final Optional<YAMLBinarySnapshot.Content> snapshot = loadSnapshot();
+        this.snapshotUpToDate = snapshot.isPresent();
+
+        if (snapshotUpToDate)
+            LOGGER.info("Loaded experiments from binary snapshot");
+
+        // Loads the central 'experiments.yaml' file and replays all changes that have not been compacted into it, yet
+        final YAMLExperimentList experimentList = replayJournal(
+                snapshot.map(YAMLBinarySnapshot.Content::experimentList).orElseGet(this::loadExperimentList)
+        );
+        this.nextId = experimentList.nextId();
+
+        // Construct experiment descriptors by tying together the experiments.yaml and individual configuration.yaml's
+        final List<ExperimentDescriptor> experimentDescriptors = loadExperiments(
+                experimentList,
+                snapshot.map(YAMLBinarySnapshot.Content::experimentDetails).orElse(Collections.emptyMap())
+        );
+        experimentDescriptors.forEach(this::index);
+        this.experimentDescriptors = Collections.unmodifiableList(experimentDescriptors);
+
+        // Also rewrites 'experiments.yaml' if archiving was interrupted before
+        if (!archive() && (journal.getEntryCount() > 0 || !snapshotUpToDate))
+            compact();
+
+        compactionTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                if (journal.getEntryCount() >= COMPACTION_THRESHOLD)
+                    compact();
+            }
+        }, COMPACTION_CHECK_INTERVAL_MS, COMPACTION_CHECK_INTERVAL_MS);
+
+        compactionTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                archive();
+            }
+        }, ARCHIVE_CHECK_INTERVAL_MS, ARCHIVE_CHECK_INTERVAL_MS);
+    }
+
+    private YAMLExperimentList loadExperimentList() {
+        try {
+            return YAMLParser.parseFile(workingDirectory.resolve(EXPERIMENTS_FILE_NAME), YAMLExperimentList.class);
+        } catch (IOException e) {
+            return new YAMLExperimentList(Collections.emptyList(), 1);
+        }
+    }
+
+    private Optional<YAMLBinarySnapshot.Content> loadSnapshot() {
+        try {
+            return YAMLBinarySnapshot.read(
+                    workingDirectory.resolve(SNAPSHOT_FILE_NAME),
+                    workingDirectory.resolve(EXPERIMENTS_FILE_NAME)
+            );
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to read experiment snapshot, falling back to YAML", e);
+            return Optional.empty();
+        }
+    }
+
+    private YAMLExperimentList replayJournal(YAMLExperimentList experimentList) {
+        final List<YAMLExperimentJournal.Entry> entries;
+
+        try {
+            entries = journal.readEntries();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (entries.isEmpty())
+            return experimentList;
+
+        final Map<Long, YAMLExperimentInfo> experiments = new LinkedHashMap<>();
+        long nextId = experimentList.nextId();
+
+        for (YAMLExperimentInfo experimentInfo : experimentList.experiments())
+            experiments.put(experimentInfo.experimentId(), experimentInfo);
+
+        for (YAMLExperimentJournal.Entry entry : entries) {
+            switch (entry.type()) {
+                case INSERT -> {
+                    experiments.putIfAbsent(entry.experiment().experimentId(), entry.experiment());
+                    nextId = Math.max(nextId, entry.experiment().experimentId() + 1);
+                }
+                case STATUS -> experiments.computeIfPresent(entry.experimentId(), (id, info) -> new YAMLExperimentInfo(
+                        info.name(),
+                        info.owner(),
+                        info.experimentId(),
+                        entry.status(),
+                        info.start(),
+                        info.end(),
+                        info.queued()
+                ));
+                case RESCHEDULE -> experiments.computeIfPresent(entry.experimentId(), (id, info) -> new YAMLExperimentInfo(
+                        info.name(),
+                        info.owner(),
+                        info.experimentId(),
+                        info.status(),
+                        entry.start(),
+                        entry.end(),
+                        info.queued()
+                ));
+            }
+        }
+
+        LOGGER.info("Replayed " + entries.size() + " journal entries");
+
+        return new YAMLExperimentList(new ArrayList<>(experiments.values()), nextId);
+    }
+
+    private List<ExperimentDescriptor> loadExperiments(YAMLExperimentList experimentList, Map<Long, YAMLExperimentDetail> knownDetails) {
+        final List<ExperimentDescriptor> experimentDescriptors = new ArrayList<>();
+
+        for (YAMLExperimentInfo experimentInfo : experimentList.experiments()) {
+            // Finished experiments are only loaded once their nodes are accessed
+            if (experimentInfo.status().isFinished()) {
+                // Experiments that were archived just before a crash may still be listed in 'experiments.yaml'
+                if (archive.contains(experimentInfo.experimentId()))
+                    continue;
+
+                experimentDescriptors.add(new YAMLExperimentDescriptor(this, experimentInfo, null, userDatabase));
+                continue;
+            }
+
+            if (knownDetails.containsKey(experimentInfo.experimentId())) {
+                experimentDescriptors.add(new YAMLExperimentDescriptor(
+                        this,
+                        experimentInfo,
+                        knownDetails.get(experimentInfo.experimentId()),
+                        userDatabase
+                ));
+                continue;
+            }
+
+            try {
+                final YAMLExperimentDetail experimentDetail = YAMLParser.parseFile(
+                        PathUtil.getExperimentPath(experimentInfo.experimentId()).resolve("configuration.yaml"),
+                        YAMLExperimentDetail.class
+                );
+
+                experimentDescriptors.add(
+                        new YAMLExperimentDescriptor(this, experimentInfo, experimentDetail, userDatabase)
+                );
+            } catch (IOException ignored) {
+                // If the experiment sub-folder does not exist anymore, don't list this experiment.
+            }
+        }
+
+        return experimentDescriptors;
+    }
+
+    private static Map<ExperimentStatus, NavigableSet<ExperimentDescriptor>> createStatusIndex() {
+        final Map<ExperimentStatus, NavigableSet<ExperimentDescriptor>> statusIndex = new EnumMap<>(ExperimentStatus.class);
+
+        for (ExperimentStatus status : ExperimentStatus.values()) {
+            if (!status.isFinished())
+                statusIndex.put(status, new ConcurrentSkipListSet<>(START_ORDER));
+        }
+
+        return statusIndex;
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperiments() {
+        return experimentDescriptors;
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsWithStatus(ExperimentStatus status) {
+        final NavigableSet<ExperimentDescriptor> experiments = unfinishedByStatus.get(status);
+
+        if (experiments == null)
+            throw new IllegalArgumentException("Experiments can only be listed by unfinished status, not " + status);
+
+        return List.copyOf(experiments);
+    }
+
+    @Override
+    public synchronized ExperimentDescriptor addExperiment(ExperimentTemplate template, User owner, boolean queued) {
+        final YAMLExperimentInfo experimentInfo = new YAMLExperimentInfo(
+                template.name,
+                owner.getId(),
+                nextId++,
+                ExperimentStatus.CREATED,
+                template.start,
+                template.end,
+                queued
+        );
+
+        final YAMLExperimentDetail experimentDetail = new YAMLExperimentDetail(template.nodes);
+
+        final ExperimentDescriptor experiment = new YAMLExperimentDescriptor(this, experimentInfo, experimentDetail, userDatabase);
+
+        // The configuration file has to exist before the journal entry referencing it is written
+        writeExperimentDetail(experiment.getId(), experimentDetail);
+
+        journalLock.readLock().lock();
+        try {
+            journal.appendInsert(experimentInfo);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+
+        final List<ExperimentDescriptor> experimentDescriptors = new ArrayList<>(this.experimentDescriptors.size() + 1);
+        experimentDescriptors.addAll(this.experimentDescriptors);
+        experimentDescriptors.add(experiment);
+
+        index(experiment);
+        this.experimentDescriptors = Collections.unmodifiableList(experimentDescriptors);
+        return experiment;
+    }
+
+    private void index(ExperimentDescriptor experiment) {
+        timeIndex.add(experiment);
+        experimentsById.put(experiment.getId(), experiment);
+        experimentsByOwner.computeIfAbsent(experiment.getOwner().getId(), owner -> new ConcurrentSkipListMap<>())
+                .put(experiment.getId(), experiment);
+        scheduleGaps.add(experiment);
+        updateStatusIndex(experiment);
+    }
+
+    private void updateStatusIndex(ExperimentDescriptor experiment) {
+        for (Map.Entry<ExperimentStatus, NavigableSet<ExperimentDescriptor>> entry : unfinishedByStatus.entrySet()) {
+            if (entry.getKey() == experiment.getStatus())
+                entry.getValue().add(experiment);
+            else
+                entry.getValue().remove(experiment);
+        }
+    }
+
+    @Override
+    public void updateExperiment(ExperimentDescriptor experimentDescriptor) {
+        updateStatusIndex(experimentDescriptor);
+
+        if (experimentDescriptor.getStatus().isFinished())
+            scheduleGaps.remove(experimentDescriptor);
+
+        journalLock.readLock().lock();
+        try {
+            journal.appendStatus(experimentDescriptor.getId(), experimentDescriptor.getStatus());
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void rescheduleExperiment(ExperimentDescriptor experimentDescriptor, LocalDateTime start) {
+        final YAMLExperimentDescriptor experiment = (YAMLExperimentDescriptor) experimentDescriptor;
+        final LocalDateTime end = start.plus(Duration.between(experiment.getStart(), experiment.getEnd()));
+
+        // All indices are ordered by time, so the experiment has to leave them before its time frame changes
+        timeIndex.remove(experiment);
+        unfinishedByStatus.values().forEach(experiments -> experiments.remove(experiment));
+        scheduleGaps.remove(experiment);
+
+        experiment.setTimeFrame(start, end);
+
+        timeIndex.add(experiment);
+        scheduleGaps.add(experiment);
+        updateStatusIndex(experiment);
+
+        journalLock.readLock().lock();
+        try {
+            journal.appendReschedule(experiment.getId(), start, end);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsInTimeFrame(LocalDateTime start, LocalDateTime end) {
+        return timeIndex.getOverlapping(start, end);
+    }
+
+    @Override
+    public LocalDateTime findFreeTimeSlot(Collection<String> nodeIds, LocalDateTime earliestStart, Duration duration) {
+        return scheduleGaps.findFreeTimeSlot(nodeIds, earliestStart, duration);
+    }
+
+    @Override
+    public LocalDateTime findFreeTimeSlot(ExperimentDescriptor experimentDescriptor, LocalDateTime earliestStart, Duration duration) {
+        return scheduleGaps.findFreeTimeSlot(experimentDescriptor, earliestStart, duration);
+    }
+
+    @Override
+    public Optional<ExperimentDescriptor> getExperimentById(long id) {
+        final ExperimentDescriptor experiment = experimentsById.get(id);
+
+        if (experiment != null)
+            return Optional.of(experiment);
+
+        return archive.get(id).map(this::createArchivedDescriptor);
+    }
+
+    @Override
+    public List<ExperimentDescriptor> getExperimentsByOwner(User owner) {
+        final NavigableMap<Long, ExperimentDescriptor> experiments = new TreeMap<>(
+                experimentsByOwner.getOrDefault(owner.getId(), Collections.emptyNavigableMap())
+        );
+
+        for (YAMLExperimentInfo experimentInfo : archive.getByOwner(owner.getId()))
+            experiments.put(experimentInfo.experimentId(), createArchivedDescriptor(experimentInfo));
+
+        return new ArrayList<>(experiments.values());
+    }
+
+    /**
+     * Returns all experiments including the archived ones. This reads the whole archive and is only meant for exports.
+     */
+    public List<ExperimentDescriptor> getAllExperiments() {
+        final List<ExperimentDescriptor> experiments = new ArrayList<>();
+
+        for (YAMLExperimentInfo experimentInfo : archive.getAll())
+            experiments.add(createArchivedDescriptor(experimentInfo));
+
+        experiments.addAll(experimentDescriptors);
+        experiments.sort(Comparator.comparingLong(ExperimentDescriptor::getId));
+
+        return experiments;
+    }
+
+    private ExperimentDescriptor createArchivedDescriptor(YAMLExperimentInfo experimentInfo) {
+        return new YAMLExperimentDescriptor(this, experimentInfo, null, userDatabase);
+    }
+
+    /**
+     * Moves all finished experiments that ended longer than the archive age ago into the archive and rewrites
+     * 'experiments.yaml' without them.
+     *
+     * @return Whether any experiments have been archived
+     */
+    public synchronized boolean archive() {
+        final LocalDateTime threshold = LocalDateTime.now().minus(archiveAge);
+        final List<ExperimentDescriptor> archivedExperiments = new ArrayList<>();
+        final List<ExperimentDescriptor> remainingExperiments = new ArrayList<>();
+
+        for (ExperimentDescriptor experiment : experimentDescriptors) {
+            if (experiment.getStatus().isFinished() && experiment.getEnd().isBefore(threshold))
+                archivedExperiments.add(experiment);
+            else
+                remainingExperiments.add(experiment);
+        }
+
+        if (archivedExperiments.isEmpty())
+            return false;
+
+        try {
+            archive.archive(archivedExperiments);
+        } catch (IOException e) {
+            LOGGER.error("Failed to archive experiments", e);
+            return false;
+        }
+
+        for (ExperimentDescriptor experiment : archivedExperiments) {
+            timeIndex.remove(experiment);
+            experimentsById.remove(experiment.getId());
+
+            final NavigableMap<Long, ExperimentDescriptor> ownedExperiments = experimentsByOwner.get(experiment.getOwner().getId());
+
+            if (ownedExperiments != null)
+                ownedExperiments.remove(experiment.getId());
+        }
+
+        this.experimentDescriptors = Collections.unmodifiableList(remainingExperiments);
+        experimentsFileUpToDate = false;
+
+        LOGGER.info("Archived " + archivedExperiments.size() + " experiments");
+
+        compact();
+        return true;
+    }
+
+    @Override
+    public YAMLUserDatabase getUserDatabase() {
+        return userDatabase;
+    }
+
+    YAMLExperimentDetailCache getDetailCache() {
+        return detailCache;
+    }
+
+    /**
+     * Writes the current state of all experiments into 'experiments.yaml' and truncates the journal afterwards.
+     * Also refreshes the binary snapshot whenever 'experiments.yaml' has changed.
+     */
+    public synchronized void compact() {
+        journalLock.writeLock().lock();
+        try {
+            final Path experimentsFile = workingDirectory.resolve(EXPERIMENTS_FILE_NAME);
+
+            if (journal.getEntryCount() > 0 || !experimentsFileUpToDate || !Files.isRegularFile(experimentsFile)) {
+                final Path temporaryFile = workingDirectory.resolve(EXPERIMENTS_FILE_NAME + ".tmp");
+
+                YAMLParser.writeFile(temporaryFile, YAMLExperimentList.fromExperimentDescriptorList(experimentDescriptors, nextId));
+                Files.move(temporaryFile, experimentsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                journal.truncate();
+                experimentsFileUpToDate = true;
+                snapshotUpToDate = false;
+            }
+
+            if (!snapshotUpToDate) {
+                YAMLBinarySnapshot.write(
+                        workingDirectory.resolve(SNAPSHOT_FILE_NAME),
+                        experimentsFile,
+                        experimentDescriptors,
+                        nextId
+                );
+                snapshotUpToDate = true;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to compact experiment journal", e);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactionTimer.cancel();
+        compact();
+        journal.close();
+    }
+
+    private void writeExperimentDetail(long experimentId, YAMLExperimentDetail experimentDetail) {
+        try {
+            Files.createDirectories(PathUtil.getExperimentPath(experimentId));
+
+            YAMLParser.writeFile(
+                    PathUtil.getExperimentPath(experimentId).resolve("configuration.yaml"),
+                    experimentDetail
+            );
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cau.testbed.server.config.YAMLParser;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Archive of finished experiments that have been moved out of 'experiments.yaml'.
+ * Experiments are written to immutable segment files in the 'archive' folder, one per month of the experiments' end
+ * (plus a running number if a month is archived more than once).
+ * <p>
+ * The 'segments.journal' file lists every segment with the range of its experiment IDs and its owners, one JSON line
+ * per segment. Archiving only appends the lines of the new segments, and startup only reads one line per segment.
+ * Lookups by ID and by owner load just the segments that may contain matching experiments. Recently used segments
+ * are cached.
+ */
+class YAMLExperimentArchive {
+    private static final Logger LOGGER = LoggerFactory.getLogger(YAMLExperimentArchive.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String ARCHIVE_FOLDER_NAME = "archive";
+    private static final String SEGMENTS_FILE_NAME = "segments.journal";
+    // Index of all archived experiments written by earlier versions, split into 'segments.journal' once
+    private static final String LEGACY_INDEX_FILE_NAME = "index.yaml";
+    private static final int SEGMENT_CACHE_SIZE = 8;
+
+    private final Path archiveDirectory;
+    private final Path segmentsFile;
+
+    // In the order the segments were archived
+    private final List<SegmentEntry> segments = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Map<Long, YAMLExperimentInfo>> segmentCache;
+
+    YAMLExperimentArchive(Path workingDirectory) {
+        this.archiveDirectory = workingDirectory.resolve(ARCHIVE_FOLDER_NAME);
+        this.segmentsFile = archiveDirectory.resolve(SEGMENTS_FILE_NAME);
+        this.segmentCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Long, YAMLExperimentInfo>> eldest) {
+                return size() > SEGMENT_CACHE_SIZE;
+            }
+        };
+
+        try {
+            migrateLegacyIndex();
+            segments.addAll(loadSegments());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the segment list. A partially written last line (e.g. due to a crash while archiving) is cut off, as the
+     * experiments of its segment are still listed in 'experiments.yaml' and are archived again.
+     */
+    private List<SegmentEntry> loadSegments() throws IOException {
+        if (!Files.isRegularFile(segmentsFile))
+            return Collections.emptyList();
+
+        final byte[] content = Files.readAllBytes(segmentsFile);
+        final List<SegmentEntry> entries = new ArrayList<>();
+        int lineStart = 0;
+
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+
+            while (lineEnd < content.length && content[lineEnd] != '\n')
+                lineEnd++;
+
+            final String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+
+            if (lineEnd == content.length) {
+                LOGGER.warn("Cutting off partially written archive segment: " + line);
+
+                try (FileChannel channel = FileChannel.open(segmentsFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(lineStart);
+                    channel.force(true);
+                }
+                break;
+            }
+
+            lineStart = lineEnd + 1;
+
+            if (!line.isBlank())
+                entries.add(MAPPER.readValue(line, SegmentEntry.class));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Replaces the 'index.yaml' of earlier versions, which listed every archived experiment, by the segment list.
+     */
+    private void migrateLegacyIndex() throws IOException {
+        final Path legacyIndexFile = archiveDirectory.resolve(LEGACY_INDEX_FILE_NAME);
+
+        if (!Files.isRegularFile(legacyIndexFile))
+            return;
+
+        if (!Files.exists(segmentsFile)) {
+            final Map<String, List<LegacyIndexEntry>> entriesBySegment = new LinkedHashMap<>();
+
+            for (LegacyIndexEntry entry : YAMLParser.parseFile(legacyIndexFile, LegacyIndex.class).experiments())
+                entriesBySegment.computeIfAbsent(entry.segment(), segment -> new ArrayList<>()).add(entry);
+
+            final StringBuilder lines = new StringBuilder();
+
+            for (Map.Entry<String, List<LegacyIndexEntry>> segment : entriesBySegment.entrySet()) {
+                lines.append(MAPPER.writeValueAsString(new SegmentEntry(
+                        segment.getKey(),
+                        segment.getValue().stream().mapToLong(LegacyIndexEntry::experimentId).min().orElseThrow(),
+                        segment.getValue().stream().mapToLong(LegacyIndexEntry::experimentId).max().orElseThrow(),
+                        segment.getValue().stream().map(LegacyIndexEntry::owner).distinct().sorted().toList()
+                ))).append('\n');
+            }
+
+            final Path temporaryFile = segmentsFile.resolveSibling(SEGMENTS_FILE_NAME + ".tmp");
+            Files.writeString(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, segmentsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            LOGGER.info("Split archive index into " + entriesBySegment.size() + " segments");
+        }
+
+        Files.delete(legacyIndexFile);
+    }
+
+    boolean contains(long experimentId) {
+        return get(experimentId).isPresent();
+    }
+
+    Optional<YAMLExperimentInfo> get(long experimentId) {
+        for (SegmentEntry segment : segments) {
+            if (experimentId < segment.minId() || experimentId > segment.maxId())
+                continue;
+
+            final YAMLExperimentInfo experimentInfo = loadSegment(segment.segment()).get(experimentId);
+
+            if (experimentInfo != null)
+                return Optional.of(experimentInfo);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Returns all archived experiments of the given owner in ascending order of their IDs.
+     */
+    List<YAMLExperimentInfo> getByOwner(long ownerId) {
+        final NavigableMap<Long, YAMLExperimentInfo> experiments = new TreeMap<>();
+
+        for (SegmentEntry segment : segments) {
+            if (!segment.owners().contains(ownerId))
+                continue;
+
+            for (YAMLExperimentInfo experimentInfo : loadSegment(segment.segment()).values()) {
+                if (experimentInfo.owner() == ownerId)
+                    experiments.put(experimentInfo.experimentId(), experimentInfo);
+            }
+        }
+
+        return new ArrayList<>(experiments.values());
+    }
+
+    /**
+     * Returns all archived experiments, reading every segment. Only meant for exports.
+     */
+    List<YAMLExperimentInfo> getAll() {
+        final List<YAMLExperimentInfo> experiments = new ArrayList<>();
+
+        for (SegmentEntry segment : segments)
+            experiments.addAll(loadSegment(segment.segment()).values());
+
+        return experiments;
+    }
+
+    /**
+     * Writes the given finished experiments into new segments and appends them to the segment list.
+     * Both are on disk before this returns, so the experiments can be dropped from 'experiments.yaml' afterwards.
+     */
+    synchronized void archive(List<ExperimentDescriptor> experiments) throws IOException {
+        Files.createDirectories(archiveDirectory);
+
+        final Map<YearMonth, List<YAMLExperimentInfo>> experimentsByMonth = new TreeMap<>();
+
+        for (ExperimentDescriptor experiment : experiments) {
+            experimentsByMonth.computeIfAbsent(YearMonth.from(experiment.getEnd()), month -> new ArrayList<>())
+                    .add(new YAMLExperimentInfo(
+                            experiment.getName(),
+                            experiment.getOwner().getId(),
+                            experiment.getId(),
+                            experiment.getStatus(),
+                            experiment.getStart(),
+                            experiment.getEnd(),
+                            experiment.isQueued()
+                    ));
+        }
+
+        final List<SegmentEntry> newSegments = new ArrayList<>();
+
+        for (Map.Entry<YearMonth, List<YAMLExperimentInfo>> month : experimentsByMonth.entrySet()) {
+            final String segment = getUnusedSegmentName(month.getKey());
+            writeAtomically(archiveDirectory.resolve(segment), new Segment(month.getValue()));
+
+            newSegments.add(new SegmentEntry(
+                    segment,
+                    month.getValue().stream().mapToLong(YAMLExperimentInfo::experimentId).min().orElseThrow(),
+                    month.getValue().stream().mapToLong(YAMLExperimentInfo::experimentId).max().orElseThrow(),
+                    month.getValue().stream().map(YAMLExperimentInfo::owner).distinct().sorted().toList()
+            ));
+        }
+
+        appendSegments(newSegments);
+        segments.addAll(newSegments);
+    }
+
+    private void appendSegments(List<SegmentEntry> newSegments) throws IOException {
+        final StringBuilder lines = new StringBuilder();
+
+        for (SegmentEntry segment : newSegments)
+            lines.append(MAPPER.writeValueAsString(segment)).append('\n');
+
+        final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel channel = FileChannel.open(segmentsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            channel.force(false);
+        }
+    }
+
+    private String getUnusedSegmentName(YearMonth month) {
+        String segment = month + ".yaml";
+
+        for (int i = 2; Files.exists(archiveDirectory.resolve(segment)); i++)
+            segment = month + "-" + i + ".yaml";
+
+        return segment;
+    }
+
+    private Map<Long, YAMLExperimentInfo> loadSegment(String segment) {
+        synchronized (segmentCache) {
+            final Map<Long, YAMLExperimentInfo> cachedSegment = segmentCache.get(segment);
+
+            if (cachedSegment != null)
+                return cachedSegment;
+        }
+
+        final Map<Long, YAMLExperimentInfo> experiments = new HashMap<>();
+
+        try {
+            for (YAMLExperimentInfo experimentInfo : YAMLParser.parseFile(archiveDirectory.resolve(segment), Segment.class).experiments())
+                experiments.put(experimentInfo.experimentId(), experimentInfo);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        synchronized (segmentCache) {
+            segmentCache.put(segment, experiments);
+        }
+
+        return experiments;
+    }
+
+    private static void writeAtomically(Path file, Object content) throws IOException {
+        final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        YAMLParser.writeFile(temporaryFile, content);
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    record Segment(@JsonProperty("experiments") List<YAMLExperimentInfo> experiments) {
+    }
+
+    record SegmentEntry(
+            @JsonProperty("segment") String segment,
+            @JsonProperty("minId") long minId,
+            @JsonProperty("maxId") long maxId,
+            @JsonProperty("owners") List<Long> owners
+    ) {
+    }
+
+    record LegacyIndex(@JsonProperty("experiments") List<LegacyIndexEntry> experiments) {
+    }
+
+    record LegacyIndexEntry(
+            @JsonProperty("experimentId") long experimentId,
+            @JsonProperty("owner") long owner,
+            @JsonProperty("segment") String segment
+    ) {
+    }
+}
@@ -0,0 +1,145 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.datastore.UserDatabase;
+import de.cau.testbed.server.config.experiment.*;
+import de.cau.testbed.server.constants.ExperimentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Wrapper for the {@link ExperimentDescriptor} interface for the YAML data store.
+ * Ties together the 'experiments.yaml' ({@link YAMLExperimentList}) and the individual
+ * 'configuration.yaml' ({@link YAMLExperimentInfo}) files into one accessible class.
+ * <p>
+ * Nodes of experiments that have not finished are kept in memory. Nodes of finished experiments are loaded on demand
+ * and only held in the database's {@link YAMLExperimentDetailCache}.
+ */
+public class YAMLExperimentDescriptor implements ExperimentDescriptor {
+    private final long id;
+
+    private final User owner;
+    private final String name;
+    private final boolean queued;
+    private final YAMLDatabase database;
+    private ExperimentStatus status;
+
+    // Only changed by the database when rescheduling the experiment
+    private volatile LocalDateTime start;
+    private volatile LocalDateTime end;
+
+    // Only set while the experiment is not finished, null otherwise
+    private volatile List<ExperimentNode> pinnedNodes;
+
+    // Used for synchronization of reading and writing the experiment status
+    private final Object lockObject = new Object();
+
+    /**
+     * @param experimentDetail May be null for finished experiments, in which case nodes are loaded on demand
+     */
+    public YAMLExperimentDescriptor(YAMLDatabase database, YAMLExperimentInfo experimentInfo, YAMLExperimentDetail experimentDetail, UserDatabase userTable) {
+        this.database = database;
+        final Optional<User> user = userTable.getUserById(experimentInfo.owner());
+
+        this.owner = user.orElseThrow(() -> new IllegalArgumentException(String.format(
+                "Could not instantiate experiment %d; user not found!",
+                experimentInfo.experimentId()
+        )));
+
+        this.id = experimentInfo.experimentId();
+        this.name = experimentInfo.name();
+        this.start = experimentInfo.start();
+        this.end = experimentInfo.end();
+        this.queued = experimentInfo.queued();
+        this.status = experimentInfo.status();
+
+        if (experimentDetail != null) {
+            if (status.isFinished())
+                database.getDetailCache().put(id, experimentDetail);
+            else
+                this.pinnedNodes = experimentDetail.nodes();
+        }
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public User getOwner() {
+        return owner;
+    }
+
+    @Override
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    @Override
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean isQueued() {
+        return queued;
+    }
+
+    void setTimeFrame(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public ExperimentStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(ExperimentStatus status) {
+        this.status = status;
+
+        // Finished experiments are rarely accessed, so their nodes don't need to stay in memory
+        if (status.isFinished() && pinnedNodes != null) {
+            database.getDetailCache().put(id, new YAMLExperimentDetail(pinnedNodes));
+            pinnedNodes = null;
+        }
+
+        database.updateExperiment(this);
+    }
+
+    @Override
+    public List<ExperimentNode> getNodes() {
+        final List<ExperimentNode> nodes = pinnedNodes;
+
+        if (nodes != null)
+            return nodes;
+
+        return database.getDetailCache().get(id).nodes();
+    }
+
+    @Override
+    public Object getLockObject() {
+        return lockObject;
+    }
+
+    @Override
+    public String toString() {
+        return "YAMLExperimentDescriptor{" +
+                "id='" + id + '\'' +
+                ", owner='" + owner + '\'' +
+                ", name='" + name + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", nodes=" + pinnedNodes +
+                '}';
+    }
+}
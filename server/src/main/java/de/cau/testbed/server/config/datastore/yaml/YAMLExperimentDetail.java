@@ -0,0 +1,13 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+
+import java.util.List;
+
+/**
+ * Data representation for the individual 'configuration.yaml' file in an experiment's sub-folder, which contains
+ * the nodes and modules used in the experiment.
+ */
+record YAMLExperimentDetail(@JsonProperty("nodes") List<ExperimentNode> nodes) {
+}
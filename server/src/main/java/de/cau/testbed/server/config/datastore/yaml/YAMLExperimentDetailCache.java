@@ -0,0 +1,62 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.config.YAMLParser;
+import de.cau.testbed.server.util.PathUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache for the 'configuration.yaml' files of experiments that are not kept in memory permanently.
+ * Details are loaded from the experiment's sub-folder on a cache miss.
+ */
+class YAMLExperimentDetailCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(YAMLExperimentDetailCache.class);
+
+    private final Map<Long, YAMLExperimentDetail> cache;
+
+    YAMLExperimentDetailCache(int maxSize) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, YAMLExperimentDetail> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    YAMLExperimentDetail get(long experimentId) {
+        synchronized (cache) {
+            final YAMLExperimentDetail cachedDetail = cache.get(experimentId);
+
+            if (cachedDetail != null)
+                return cachedDetail;
+        }
+
+        final YAMLExperimentDetail experimentDetail = load(experimentId);
+        put(experimentId, experimentDetail);
+
+        return experimentDetail;
+    }
+
+    void put(long experimentId, YAMLExperimentDetail experimentDetail) {
+        synchronized (cache) {
+            cache.put(experimentId, experimentDetail);
+        }
+    }
+
+    static YAMLExperimentDetail load(long experimentId) {
+        try {
+            return YAMLParser.parseFile(
+                    PathUtil.getExperimentPath(experimentId).resolve("configuration.yaml"),
+                    YAMLExperimentDetail.class
+            );
+        } catch (IOException e) {
+            LOGGER.warn(String.format("[Experiment %d] Could not load configuration: %s", experimentId, e.getMessage()));
+            return new YAMLExperimentDetail(Collections.emptyList());
+        }
+    }
+}
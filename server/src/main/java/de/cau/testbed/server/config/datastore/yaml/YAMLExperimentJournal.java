@@ -0,0 +1,203 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of changes to the experiment list, stored next to 'experiments.yaml'.
+ * Every insert, status change and reschedule is appended as a single JSON line, so persisting a change does not depend on the
+ * number of stored experiments. Writers that append concurrently share a single fsync (group commit).
+ * The journal is replayed on top of 'experiments.yaml' on startup and truncated once its content has been compacted
+ * into a new 'experiments.yaml'.
+ */
+class YAMLExperimentJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(YAMLExperimentJournal.class);
+    private static final ObjectMapper MAPPER;
+
+    static {
+        MAPPER = new ObjectMapper();
+        MAPPER.registerModule(new JavaTimeModule());
+        MAPPER.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    private final Path journalFile;
+    private final FileChannel channel;
+
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+
+    private long writtenSequence;
+    private long syncedSequence;
+    private int entryCount;
+
+    YAMLExperimentJournal(Path journalFile) throws IOException {
+        this.journalFile = journalFile;
+        this.channel = FileChannel.open(
+                journalFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        );
+    }
+
+    /**
+     * Reads all intact entries of the journal. Corrupt lines are skipped, as entries appended after them are valid.
+     * A partially written last line (e.g. due to a crash while appending) is cut off, so that new entries start on a
+     * line of their own. Corrupt lines count as entries, so that the journal gets compacted.
+     */
+    List<Entry> readEntries() throws IOException {
+        final byte[] content = Files.readAllBytes(journalFile);
+        final List<Entry> entries = new ArrayList<>();
+        int lineCount = 0;
+        int lineStart = 0;
+
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+
+            while (lineEnd < content.length && content[lineEnd] != '\n')
+                lineEnd++;
+
+            final String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+
+            if (lineEnd == content.length) {
+                LOGGER.warn("Cutting off partially written journal entry: " + line);
+                truncateTo(lineStart);
+                lineCount++;
+                break;
+            }
+
+            lineStart = lineEnd + 1;
+
+            if (line.isBlank())
+                continue;
+
+            lineCount++;
+
+            try {
+                entries.add(MAPPER.readValue(line, Entry.class));
+            } catch (IOException e) {
+                LOGGER.warn("Skipping corrupt journal entry after " + entries.size() + " entries: " + line);
+            }
+        }
+
+        synchronized (writeLock) {
+            entryCount = lineCount;
+        }
+
+        return entries;
+    }
+
+    void appendInsert(YAMLExperimentInfo experimentInfo) {
+        append(new Entry(EntryType.INSERT, experimentInfo, null, null, null, null));
+    }
+
+    void appendStatus(long experimentId, ExperimentStatus status) {
+        append(new Entry(EntryType.STATUS, null, experimentId, status, null, null));
+    }
+
+    void appendReschedule(long experimentId, LocalDateTime start, LocalDateTime end) {
+        append(new Entry(EntryType.RESCHEDULE, null, experimentId, null, start, end));
+    }
+
+    private void append(Entry entry) {
+        final long sequence;
+
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap((MAPPER.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+
+            synchronized (writeLock) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+
+                sequence = ++writtenSequence;
+                entryCount++;
+            }
+
+            sync(sequence);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Makes sure the entry with the given sequence number is on disk.
+     * Whoever enters first flushes everything written so far, which covers the writers queued up behind it.
+     */
+    private void sync(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence)
+                return;
+
+            final long flushedSequence;
+            synchronized (writeLock) {
+                flushedSequence = writtenSequence;
+            }
+
+            channel.force(false);
+            syncedSequence = flushedSequence;
+        }
+    }
+
+    int getEntryCount() {
+        synchronized (writeLock) {
+            return entryCount;
+        }
+    }
+
+    /**
+     * Discards all entries. Must only be called once their content has been persisted elsewhere.
+     */
+    void truncate() throws IOException {
+        synchronized (writeLock) {
+            truncateTo(0);
+            entryCount = 0;
+        }
+    }
+
+    private void truncateTo(long size) throws IOException {
+        synchronized (writeLock) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    enum EntryType {
+        INSERT,
+        STATUS,
+        RESCHEDULE,
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(
+            @JsonProperty("type") EntryType type,
+            @JsonProperty("experiment") YAMLExperimentInfo experiment,
+            @JsonProperty("experimentId") Long experimentId,
+            @JsonProperty("status") ExperimentStatus status,
+            @JsonProperty("start") LocalDateTime start,
+            @JsonProperty("end") LocalDateTime end
+    ) {
+    }
+}
@@ -22,6 +22,12 @@ public interface ExperimentDescriptor {
 
     LocalDateTime getEnd();
 
+    /**
+     * Whether the experiment was queued instead of booked for a fixed time, in which case it may be moved to an
+     * earlier free time slot.
+     */
+    boolean isQueued();
+
     ExperimentStatus getStatus();
 
     void setStatus(ExperimentStatus status);
@@ -0,0 +1,7 @@
+package de.cau.testbed.server.constants;
+
+public enum DatabaseBackend {
+    YAML,
+    MVSTORE,
+    ;
+}
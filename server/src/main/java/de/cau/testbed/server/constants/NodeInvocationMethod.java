@@ -1,6 +1,7 @@
 package de.cau.testbed.server.constants;
 
 public enum NodeInvocationMethod {
+    STAGE,
     START,
     STOP,
     CANCEL,
@@ -0,0 +1,13 @@
+package de.cau.testbed.server.constants;
+
+/**
+ * Priority classes of file transfers, from highest to lowest.
+ */
+public enum TransferPriority {
+    // Firmware requested after the start message, the experiment starts within minutes
+    FIRMWARE,
+    LOGS,
+    // Firmware fetched right after scheduling, long before the experiment's start
+    STAGING,
+    ;
+}
@@ -0,0 +1,245 @@
+package de.cau.testbed.server.module;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import de.cau.testbed.server.config.datastore.Database;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentModule;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.constants.KafkaTopic;
+import de.cau.testbed.server.constants.NodeInvocationMethod;
+import de.cau.testbed.server.network.NetworkSender;
+import de.cau.testbed.server.network.NetworkTransport;
+import de.cau.testbed.server.network.message.ExperimentMessage;
+import de.cau.testbed.server.network.serialization.ExperimentSerializer;
+import de.cau.testbed.server.util.ExperimentFinishTrackerFactory;
+import de.cau.testbed.server.util.FirmwareStagingTracker;
+import de.cau.testbed.server.util.FirmwareStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prepares scheduled experiments {@link #PREPARE_BUFFER_SEC} seconds before their start.
+ * Every scheduled experiment has its own timer, which is armed when the experiment is scheduled and re-armed or
+ * cancelled whenever its start time or status changes. Timers fire on a small thread pool, so experiments starting
+ * at the same time are prepared concurrently.
+ * <p>
+ * The lateness of every preparation, i.e. how long after its planned time it actually ran, is recorded in the
+ * 'prepareLateness' histogram (in milliseconds).
+ * <p>
+ * Firmware is staged as soon as an experiment is scheduled: nodes are told to fetch it in the background, so the
+ * preparation only verifies that every node acknowledged its firmware. Nodes that did not fetch it in the meantime
+ * still retrieve it after the start message and are counted in the 'unstagedNodes' meter.
+ */
+public class ExperimentScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentScheduler.class);
+    private static final int PREPARE_BUFFER_SEC = 120;
+    private static final int PREPARE_THREADS = 4;
+
+    private final ExperimentFinishTrackerFactory trackerFactory;
+    private final FirmwareStagingTracker stagingTracker;
+    private final NetworkSender<ExperimentMessage> experimentSender;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // Experiment ID -> armed preparation timer. The holder is created before the timer is submitted, so a timer that
+    // fires right away can still remove its own entry.
+    private final Map<Long, AtomicReference<ScheduledFuture<?>>> timers = new ConcurrentHashMap<>();
+
+    private final Histogram prepareLateness;
+    private final Meter unstagedNodes;
+
+    public ExperimentScheduler(
+            NetworkTransport transport,
+            ExperimentFinishTrackerFactory trackerFactory,
+            FirmwareStagingTracker stagingTracker,
+            MetricRegistry metrics
+    ) {
+        this.trackerFactory = trackerFactory;
+        this.stagingTracker = stagingTracker;
+        this.experimentSender = transport.createSender(new ExperimentSerializer(), KafkaTopic.EXPERIMENT_PREPARATION);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(PREPARE_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "experiment-scheduler-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        this.prepareLateness = metrics.histogram(MetricRegistry.name(ExperimentScheduler.class, "prepareLateness"));
+        this.unstagedNodes = metrics.meter(MetricRegistry.name(ExperimentScheduler.class, "unstagedNodes"));
+        metrics.gauge(MetricRegistry.name(ExperimentScheduler.class, "armedTimers"), () -> timers::size);
+    }
+
+    /**
+     * Arms timers for all experiments that were scheduled before the server started and stages their firmware again.
+     */
+    public void scheduleExisting(Database database) {
+        for (ExperimentDescriptor descriptor : database.getExperimentsWithStatus(ExperimentStatus.SCHEDULED)) {
+            schedule(descriptor);
+            stageFirmware(descriptor);
+        }
+    }
+
+    /**
+     * Tells the experiment's nodes to fetch their firmware in the background, unless the experiment is prepared
+     * right away anyway. Has to be called once the experiment is scheduled, but not again if only its start time
+     * changes.
+     */
+    public void stageFirmware(ExperimentDescriptor descriptor) {
+        if (!descriptor.getStart().minusSeconds(PREPARE_BUFFER_SEC).isAfter(LocalDateTime.now()))
+            return;
+
+        stagingTracker.expect(descriptor);
+
+        executor.execute(() -> {
+            synchronized (descriptor.getLockObject()) {
+                if (descriptor.getStatus() != ExperimentStatus.SCHEDULED)
+                    return;
+            }
+
+            experimentSender.send(null, new ExperimentMessage(descriptor, NodeInvocationMethod.STAGE, getFirmwareHashes(descriptor)));
+
+            LOGGER.info(String.format("[Experiment %d] Staging firmware on nodes", descriptor.getId()));
+        });
+    }
+
+    /**
+     * Arms the preparation timer of the given experiment, replacing any previous timer.
+     * Has to be called again whenever the experiment's start time changes.
+     */
+    public void schedule(ExperimentDescriptor descriptor) {
+        final LocalDateTime armedAt = LocalDateTime.now();
+        final LocalDateTime prepareAt = descriptor.getStart().minusSeconds(PREPARE_BUFFER_SEC);
+        final long delayMillis = Math.max(0, ChronoUnit.MILLIS.between(armedAt, prepareAt));
+
+        timers.compute(descriptor.getId(), (id, previousTimer) -> {
+            if (previousTimer != null)
+                previousTimer.get().cancel(false);
+
+            // Experiments scheduled shortly before their start can't be prepared earlier than now
+            final LocalDateTime plannedAt = prepareAt.isAfter(armedAt) ? prepareAt : armedAt;
+
+            final AtomicReference<ScheduledFuture<?>> timer = new AtomicReference<>();
+            timer.set(executor.schedule(() -> {
+                timers.remove(id, timer);
+                prepareExperiment(descriptor, plannedAt);
+            }, delayMillis, TimeUnit.MILLISECONDS));
+
+            return timer;
+        });
+
+        LOGGER.info(String.format(
+                "[Experiment %d] Preparation scheduled in %d seconds",
+                descriptor.getId(),
+                delayMillis / 1000
+        ));
+    }
+
+    private void prepareExperiment(ExperimentDescriptor descriptor, LocalDateTime plannedAt) {
+        synchronized (descriptor.getLockObject()) {
+            // Cancelled or already prepared in the meantime
+            if (descriptor.getStatus() != ExperimentStatus.SCHEDULED)
+                return;
+
+            prepareLateness.update(Math.max(0, ChronoUnit.MILLIS.between(plannedAt, LocalDateTime.now())));
+
+            if (descriptor.getEnd().isBefore(LocalDateTime.now())) {
+                LOGGER.info(String.format(
+                        "[Experiment %d] %s ended before current time. Skipping and setting status to FAILED_TO_START.",
+                        descriptor.getId(),
+                        descriptor.getName()
+                ));
+                descriptor.setStatus(ExperimentStatus.FAILED_TO_START);
+
+                return;
+            }
+
+            LOGGER.info(String.format(
+                    "[Experiment %d] Preparing experiment %s",
+                    descriptor.getId(),
+                    descriptor.getName()
+            ));
+
+            verifyStaging(descriptor);
+
+            experimentSender.send(null, new ExperimentMessage(descriptor, NodeInvocationMethod.START, getFirmwareHashes(descriptor)));
+            descriptor.setStatus(ExperimentStatus.STARTED);
+        }
+        trackerFactory.createExperimentFinishTracker(descriptor);
+    }
+
+    private void verifyStaging(ExperimentDescriptor descriptor) {
+        final List<String> nodes = stagingTracker.getUnstagedNodes(descriptor);
+        stagingTracker.forget(descriptor.getId());
+
+        if (nodes.isEmpty()) {
+            LOGGER.info(String.format("[Experiment %d] Firmware is staged on all nodes", descriptor.getId()));
+            return;
+        }
+
+        unstagedNodes.mark(nodes.size());
+
+        LOGGER.warn(String.format(
+                "[Experiment %d] Firmware is not staged on nodes %s, they retrieve it after the start message",
+                descriptor.getId(),
+                nodes
+        ));
+    }
+
+    private static Map<String, String> getFirmwareHashes(ExperimentDescriptor descriptor) {
+        final Map<String, String> firmwareHashes = new HashMap<>();
+
+        for (ExperimentNode node : descriptor.getNodes()) {
+            for (ExperimentModule module : node.modules()) {
+                if (firmwareHashes.containsKey(module.firmware))
+                    continue;
+
+                try {
+                    firmwareHashes.put(module.firmware, FirmwareStore.getFirmwareHash(descriptor.getId(), module.firmware));
+                } catch (IOException e) {
+                    // Nodes simply request the firmware without a hash
+                    LOGGER.warn(String.format(
+                            "[Experiment %d] Could not determine hash of firmware %s: %s",
+                            descriptor.getId(),
+                            module.firmware,
+                            e.getMessage()
+                    ));
+                }
+            }
+        }
+
+        return firmwareHashes;
+    }
+
+    public void stopExperiment(ExperimentDescriptor experiment) {
+        final AtomicReference<ScheduledFuture<?>> timer = timers.remove(experiment.getId());
+
+        if (timer != null)
+            timer.get().cancel(false);
+
+        stagingTracker.forget(experiment.getId());
+
+        synchronized (experiment.getLockObject()) {
+            if (experiment.getStatus().isFinished())
+                return;
+
+            if (experiment.getStatus().hasStarted()) {
+                experimentSender.send(null, new ExperimentMessage(experiment, NodeInvocationMethod.STOP));
+                trackerFactory.createExperimentFinishTracker(experiment);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.cau.testbed.server.module;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import de.cau.testbed.server.constants.TransferPriority;
+import de.cau.testbed.server.util.FirmwareStagingTracker;
+import de.cau.testbed.server.util.FirmwareStore;
+import de.cau.testbed.server.util.PathUtil;
+import de.cau.testbed.server.network.fileTransfer.NodeTransferTarget;
+import de.cau.testbed.server.network.message.FirmwareRetrievalMessage;
+import de.cau.testbed.server.network.fileTransfer.TransferScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Uploads the firmware a node requests on the firmware retrieval topic. Called concurrently by the topic's worker pool,
+ * whose workers only enqueue the upload with the {@link TransferScheduler}. The returned future completes once the
+ * upload is done. A node that already holds the firmware's blob sends its hash along, in which case the upload is
+ * skipped and counted in the 'cachedFirmware' meter. Either way, the node is acknowledged to hold the firmware for
+ * staging.
+ */
+public class FirmwareDistributionHandler implements Function<FirmwareRetrievalMessage, CompletionStage<Void>> {
+    private final Logger logger = LoggerFactory.getLogger(FirmwareDistributionHandler.class);
+
+    private final TransferScheduler transferScheduler;
+    private final FirmwareStagingTracker stagingTracker;
+    private final Meter cachedFirmware;
+
+    public FirmwareDistributionHandler(TransferScheduler transferScheduler, FirmwareStagingTracker stagingTracker, MetricRegistry metrics) {
+        this.transferScheduler = transferScheduler;
+        this.stagingTracker = stagingTracker;
+        this.cachedFirmware = metrics.meter(MetricRegistry.name(FirmwareDistributionHandler.class, "cachedFirmware"));
+    }
+
+    @Override
+    public CompletionStage<Void> apply(FirmwareRetrievalMessage retrievalMessage) {
+        try {
+            logRetrievalIntent(retrievalMessage);
+
+            final Path firmwarePath = getValidFirmwarePath(retrievalMessage);
+
+            if (isHeldByNode(retrievalMessage)) {
+                cachedFirmware.mark();
+                logCacheHit(retrievalMessage);
+                markDelivered(retrievalMessage);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return transferScheduler.upload(
+                    retrievalMessage.staging ? TransferPriority.STAGING : TransferPriority.FIRMWARE,
+                    new NodeTransferTarget(retrievalMessage.hostName, retrievalMessage.userName, retrievalMessage.targetPath),
+                    firmwarePath
+            ).handle((result, error) -> {
+                if (error != null) {
+                    logRetrievalFailure(retrievalMessage, error);
+                } else {
+                    logRetrievalSuccess(retrievalMessage);
+                    markDelivered(retrievalMessage);
+                }
+
+                return null;
+            });
+        } catch (Exception e) {
+            logRetrievalFailure(retrievalMessage, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void logRetrievalFailure(FirmwareRetrievalMessage retrievalMessage, Throwable error) {
+        logger.error(String.format(
+                "[Experiment %d] Failed to execute firmware for node %s transfer due to %s",
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId,
+                error.getMessage()
+        ));
+    }
+
+    private void markDelivered(FirmwareRetrievalMessage retrievalMessage) {
+        stagingTracker.markDelivered(retrievalMessage.experimentId, retrievalMessage.nodeId, retrievalMessage.firmwareName);
+    }
+
+    private boolean isHeldByNode(FirmwareRetrievalMessage retrievalMessage) throws IOException {
+        if (retrievalMessage.firmwareHash == null)
+            return false;
+
+        return retrievalMessage.firmwareHash.equals(
+                FirmwareStore.getFirmwareHash(retrievalMessage.experimentId, retrievalMessage.firmwareName)
+        );
+    }
+
+    private void logCacheHit(FirmwareRetrievalMessage retrievalMessage) {
+        logger.info(String.format(
+                "[%s] [Experiment %d] Node %s already holds firmware %s, skipping transfer",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId,
+                retrievalMessage.firmwareName
+        ));
+    }
+
+    private void logRetrievalSuccess(FirmwareRetrievalMessage retrievalMessage) {
+        logger.info(String.format(
+                "[%s] [Experiment %d] Node %s got firmware %s",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId,
+                retrievalMessage.firmwareName
+        ));
+    }
+
+    private void logRetrievalIntent(FirmwareRetrievalMessage retrievalMessage) {
+        logger.info(String.format(
+                "[%s] [Experiment %d] Node %s requests firmware transfer",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId
+        ));
+    }
+
+    private Path getValidFirmwarePath(FirmwareRetrievalMessage retrievalMessage) throws IOException {
+        return getValidFirmwarePath(retrievalMessage.experimentId, retrievalMessage.firmwareName);
+    }
+
+    private Path getValidFirmwarePath(long experimentId, String firmwareName) throws IOException {
+        final Path experimentFolder = PathUtil.getExperimentPath(experimentId);
+
+        if (!Files.isDirectory(experimentFolder))
+            throw new IOException("Experiment folder for experiment " + experimentId + " does not exist!");
+
+        final Path firmwareFolder = PathUtil.getFirmwarePath(experimentId);
+
+        if (!Files.isDirectory(firmwareFolder))
+            throw new IOException("Experiment " + experimentId + " has no firmware folder!");
+
+        final Path firmware = firmwareFolder.resolve(firmwareName);
+
+        if (!Files.isRegularFile(firmware))
+            throw new IOException("Firmware " + firmwareName + " does not exist for experiment " + experimentId);
+
+        return firmware;
+    }
+}
@@ -2,34 +2,62 @@ package de.cau.testbed.server.module;
 
 import de.cau.testbed.server.constants.KafkaTopic;
 import de.cau.testbed.server.network.message.HeartbeatMessage;
-import de.cau.testbed.server.network.KafkaNetworkReceiver;
+import de.cau.testbed.server.network.NetworkReceiver;
+import de.cau.testbed.server.network.NetworkTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class HeartbeatThread extends Thread {
+    private static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(1);
+
     private final Logger logger = LoggerFactory.getLogger(HeartbeatThread.class);
-    private final KafkaNetworkReceiver<HeartbeatMessage> heartbeatReceiver;
+    private final NetworkReceiver<HeartbeatMessage> heartbeatReceiver;
+
+    private final int batchSize;
 
     private final List<NodeStatusObject> nodeStatusList;
 
+    // Node ID -> status object, so every heartbeat is only handled by the node that sent it
+    private final Map<String, NodeStatusObject> nodeStatusById;
+
 
-    public HeartbeatThread(List<String> nodes, int timeout) {
-        this.nodeStatusList = nodes.stream().map(x -> new NodeStatusObject(x, timeout)).collect(Collectors.toList());
-        this.heartbeatReceiver = new KafkaNetworkReceiver<>(HeartbeatMessage.getDeserializer(), KafkaTopic.HEARTBEAT, "testbed-server");
+    public HeartbeatThread(NetworkTransport transport, List<String> nodes, int timeout, int batchSize) {
+        final NodeLivenessMonitor livenessMonitor = new NodeLivenessMonitor();
+        livenessMonitor.start();
+
+        this.nodeStatusList = nodes.stream().map(x -> new NodeStatusObject(x, timeout, livenessMonitor)).collect(Collectors.toList());
+        this.nodeStatusById = nodeStatusList.stream().collect(Collectors.toMap(NodeStatusObject::getNodeId, Function.identity()));
+        this.batchSize = batchSize;
+        this.heartbeatReceiver = transport.createReceiver(HeartbeatMessage.getDeserializer(), KafkaTopic.HEARTBEAT, "testbed-server", batchSize);
     }
 
     @Override
     public void run() {
         while (true) {
-            final HeartbeatMessage heartbeat = heartbeatReceiver.receive();
+            for (HeartbeatMessage heartbeat : heartbeatReceiver.receiveBatch(batchSize, RECEIVE_TIMEOUT))
+                handleHeartbeat(heartbeat);
 
-            nodeStatusList.forEach(x -> x.onHeartbeat(heartbeat.getNodeId()));
+            heartbeatReceiver.commit();
+        }
+    }
+
+    private void handleHeartbeat(HeartbeatMessage heartbeat) {
+        final NodeStatusObject nodeStatus = nodeStatusById.get(heartbeat.getNodeId());
 
-            logger.debug("Received heartbeat from node " + heartbeat.getNodeId());
+        if (nodeStatus == null) {
+            logger.debug("Received heartbeat from unknown node " + heartbeat.getNodeId());
+            return;
         }
+
+        nodeStatus.onHeartbeat();
+
+        logger.debug("Received heartbeat from node " + heartbeat.getNodeId());
     }
 
     public List<NodeStatusObject> getNodeStatusList() {
@@ -0,0 +1,161 @@
+package de.cau.testbed.server.module;
+
+import de.cau.testbed.server.constants.TransferPriority;
+import de.cau.testbed.server.network.fileTransfer.TransferScheduler;
+import de.cau.testbed.server.network.fileTransfer.NodeTransferTarget;
+import de.cau.testbed.server.network.message.LogRetrievalMessage;
+import de.cau.testbed.server.util.PathUtil;
+import de.cau.testbed.server.util.event.LogRetrievedEvent;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Downloads the logs a node announces on the log retrieval topic. Called concurrently by the topic's worker pool.
+ * Failed downloads are retried with exponential backoff as long as a finish tracker is registered for the experiment.
+ * Retries are scheduled on a timer thread, so no worker waits during the backoff. Whether a retry resumes the previous
+ * attempt depends on the configured transfer handler.
+ */
+public class LogRetrievalHandler implements Function<LogRetrievalMessage, CompletionStage<Void>> {
+    private static final long INITIAL_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final Logger logger = LoggerFactory.getLogger(LogRetrievalHandler.class);
+
+    private final TransferScheduler transferScheduler;
+    private final LogRetrievedEventDispatcher logEventHandler;
+    private final ScheduledExecutorService retryExecutor;
+
+    public LogRetrievalHandler(LogRetrievedEventDispatcher logEventHandler, TransferScheduler transferScheduler) {
+        this.logEventHandler = logEventHandler;
+        this.transferScheduler = transferScheduler;
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "log-retrieval-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return a future completing once the logs were retrieved or retrying was given up
+     */
+    @Override
+    public CompletionStage<Void> apply(LogRetrievalMessage retrievalMessage) {
+        final Path logPath = getValidExperimentLogPath(retrievalMessage);
+
+        try {
+            if (!Files.isDirectory(logPath))
+                Files.createDirectories(logPath);
+        } catch (IOException e) {
+            logRetrievalFailure(retrievalMessage, e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        logRetrievalIntent(retrievalMessage);
+
+        final NodeTransferTarget target = new NodeTransferTarget(
+                retrievalMessage.host,
+                retrievalMessage.userName,
+                retrievalMessage.path
+        );
+        final CompletableFuture<Void> retrieval = new CompletableFuture<>();
+        download(retrievalMessage, target, logPath, INITIAL_BACKOFF_MILLIS, retrieval);
+
+        return retrieval.handle((result, error) -> {
+            if (error != null) {
+                logRetrievalFailure(retrievalMessage, error);
+                return null;
+            }
+
+            logSuccessfulRetrieval(retrievalMessage);
+            logEventHandler.dispatch(new LogRetrievedEvent(retrievalMessage.experimentId, retrievalMessage.nodeId));
+            return null;
+        });
+    }
+
+    private void download(
+            LogRetrievalMessage retrievalMessage,
+            NodeTransferTarget target,
+            Path logPath,
+            long backoffMillis,
+            CompletableFuture<Void> retrieval
+    ) {
+        transferScheduler.download(TransferPriority.LOGS, target, logPath).whenComplete((result, error) -> {
+            if (error == null) {
+                retrieval.complete(null);
+                return;
+            }
+
+            final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+
+            // Nobody waits for the logs anymore, e.g. because the tracker timed out
+            if (!(cause instanceof IOException) || !logEventHandler.isRegistered(retrievalMessage.experimentId)) {
+                retrieval.completeExceptionally(cause);
+                return;
+            }
+
+            logger.warn(String.format(
+                    "[%s] [Experiment %d] Log transfer for node %s failed due to %s, retrying in %d ms",
+                    Thread.currentThread().getName(),
+                    retrievalMessage.experimentId,
+                    retrievalMessage.nodeId,
+                    cause.getMessage(),
+                    backoffMillis
+            ));
+
+            retryExecutor.schedule(() -> {
+                if (logEventHandler.isRegistered(retrievalMessage.experimentId))
+                    download(retrievalMessage, target, logPath, Math.min(2 * backoffMillis, MAX_BACKOFF_MILLIS), retrieval);
+                else
+                    retrieval.completeExceptionally(cause);
+            }, backoffMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private Path getValidExperimentLogPath(LogRetrievalMessage retrievalMessage) {
+        return getValidExperimentLogPath(retrievalMessage.experimentId, retrievalMessage.nodeId);
+    }
+
+    private Path getValidExperimentLogPath(long experimentId, String nodeId) {
+        return PathUtil.getLogPath(experimentId).resolve(nodeId);
+    }
+
+    private void logSuccessfulRetrieval(LogRetrievalMessage retrievalMessage) {
+        logger.info(String.format(
+                "[%s] [Experiment %d] Transferred logs for node %s",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId
+        ));
+    }
+
+    private void logRetrievalFailure(LogRetrievalMessage retrievalMessage, Throwable error) {
+        logger.error(String.format(
+                "[%s] [Experiment %d] Failed to execute log transfer for node %s due to %s",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId,
+                error.getMessage()
+        ));
+    }
+
+    private void logRetrievalIntent(LogRetrievalMessage retrievalMessage) {
+        logger.info(String.format(
+                "[%s] [Experiment %d] Node %s requests transfer of logs",
+                Thread.currentThread().getName(),
+                retrievalMessage.experimentId,
+                retrievalMessage.nodeId
+        ));
+    }
+}
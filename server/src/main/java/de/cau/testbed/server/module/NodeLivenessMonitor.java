@@ -0,0 +1,65 @@
+package de.cau.testbed.server.module;
+
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single thread that marks nodes as dead once their liveness deadline passes.
+ * Deadlines are kept in a min-heap owned by this thread. Heartbeats only move a node's deadline forward without
+ * touching the heap, so when an entry becomes due the node is either marked dead or re-inserted with its current
+ * deadline. Every node that is not dead has exactly one entry in the heap.
+ */
+public class NodeLivenessMonitor extends Thread {
+    // Nodes that need a (new) heap entry, handed over from other threads
+    private final Queue<NodeStatusObject> registrations = new ConcurrentLinkedQueue<>();
+
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(
+            (first, second) -> Long.compare(first.deadlineNanos() - second.deadlineNanos(), 0)
+    );
+
+    public NodeLivenessMonitor() {
+        super("node-liveness-monitor");
+        setDaemon(true);
+    }
+
+    /**
+     * Starts tracking the deadline of the given node. Must only be called while the node is not tracked.
+     */
+    void register(NodeStatusObject node) {
+        registrations.add(node);
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            NodeStatusObject registeredNode;
+            while ((registeredNode = registrations.poll()) != null)
+                deadlines.add(new Deadline(registeredNode.getDeadlineNanos(), registeredNode));
+
+            final Deadline next = deadlines.peek();
+
+            if (next == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            final long now = System.nanoTime();
+
+            if (next.deadlineNanos() - now > 0) {
+                LockSupport.parkNanos(this, next.deadlineNanos() - now);
+                continue;
+            }
+
+            deadlines.poll();
+
+            if (!next.node().expire(now))
+                deadlines.add(new Deadline(next.node().getDeadlineNanos(), next.node()));
+        }
+    }
+
+    private record Deadline(long deadlineNanos, NodeStatusObject node) {
+    }
+}
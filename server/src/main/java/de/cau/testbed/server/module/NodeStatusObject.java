@@ -3,12 +3,14 @@ package de.cau.testbed.server.module;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.cau.testbed.server.constants.DeviceStatus;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * Holds information about an individual node's status (ALIVE, DEAD, RECONNECT) and handles heartbeat messages.
+ * Status and liveness deadline are replaced together by compare-and-set, so heartbeats never block and never race
+ * with the {@link NodeLivenessMonitor} marking the node as dead.
  */
 public class NodeStatusObject {
     private static final long INITIAL_CONTACT_TIME_MS = 120_000;
@@ -17,46 +19,70 @@ public class NodeStatusObject {
     private final String nodeId;
     private final int timeout;
 
-    @JsonProperty("status")
-    private DeviceStatus status;
+    private final NodeLivenessMonitor livenessMonitor;
 
-    private Timer nodeDeadTimer;
+    private final AtomicReference<Liveness> liveness;
 
-    public NodeStatusObject(String nodeId, int timeout) {
+    public NodeStatusObject(String nodeId, int timeout, NodeLivenessMonitor livenessMonitor) {
         this.nodeId = nodeId;
         this.timeout = timeout;
-        this.status = DeviceStatus.WAIT_FOR_INITIAL_CONTACT;
+        this.livenessMonitor = livenessMonitor;
 
         // Kafka Metadata exchange can sometimes take quite some time. Wait a bit longer for initial contact
-        createOnNoResponseTimer(INITIAL_CONTACT_TIME_MS);
+        this.liveness = new AtomicReference<>(new Liveness(
+                DeviceStatus.WAIT_FOR_INITIAL_CONTACT,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INITIAL_CONTACT_TIME_MS)
+        ));
+        livenessMonitor.register(this);
+    }
+
+    public String getNodeId() {
+        return nodeId;
     }
 
-    public void onHeartbeat(String heartbeatId) {
-        if (!nodeId.equals(heartbeatId))
-            return;
+    public void onHeartbeat() {
+        // Allow for some leeway with another second
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout + 1_000);
 
-        if (status.wasDead())
-            status = DeviceStatus.RECONNECT;
-        else
-            status = DeviceStatus.ALIVE;
+        Liveness current;
+        do {
+            current = liveness.get();
+        } while (!liveness.compareAndSet(current, new Liveness(
+                current.status().wasDead() ? DeviceStatus.RECONNECT : DeviceStatus.ALIVE,
+                deadlineNanos
+        )));
 
-        nodeDeadTimer.cancel();
-        createOnNoResponseTimer(timeout + 1_000); // Allow for some leeway with another second
+        // Dead nodes are no longer tracked by the monitor
+        if (current.status() == DeviceStatus.DEAD)
+            livenessMonitor.register(this);
     }
 
+    @JsonProperty("status")
     public DeviceStatus getStatus() {
-        return status;
+        return liveness.get().status();
     }
 
-    private void createOnNoResponseTimer(long interval) {
-        final NodeStatusObject statusObject = this;
+    long getDeadlineNanos() {
+        return liveness.get().deadlineNanos();
+    }
+
+    /**
+     * Marks the node as dead if its deadline has passed.
+     *
+     * @return true if the node is dead now, false if a heartbeat has moved its deadline
+     */
+    boolean expire(long nowNanos) {
+        Liveness current;
+        do {
+            current = liveness.get();
+
+            if (current.deadlineNanos() - nowNanos > 0)
+                return false;
+        } while (!liveness.compareAndSet(current, new Liveness(DeviceStatus.DEAD, current.deadlineNanos())));
+
+        return true;
+    }
 
-        this.nodeDeadTimer = new Timer(true);
-        nodeDeadTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                statusObject.status = DeviceStatus.DEAD;
-            }
-        }, interval);
+    private record Liveness(DeviceStatus status, long deadlineNanos) {
     }
-}
\ No newline at end of file
+}
@@ -2,47 +2,89 @@ package de.cau.testbed.server.network;
 
 import de.cau.testbed.server.constants.KafkaConstants;
 import de.cau.testbed.server.constants.KafkaTopic;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.LongDeserializer;
 
 import java.time.Duration;
-import java.util.Collections;
-import java.util.Properties;
+import java.util.*;
 
+/**
+ * Receives messages of one topic. Offsets are committed manually, see {@link #commit()}.
+ * Records of a poll that do not fit into the requested batch are kept and returned by the next calls.
+ */
 public class KafkaNetworkReceiver<T> implements NetworkReceiver<T> {
-    private static String kafkaAddress;
     private static final Duration CONSUMER_TIMEOUT = Duration.ofMillis(1_000);
 
     private final KafkaConsumer<Long, T> consumer;
 
-    public KafkaNetworkReceiver(Deserializer<T> deserializer, KafkaTopic receiveTopic, String consumerID) {
+    // Records of the last poll that have not been handed out, yet
+    private final Deque<ConsumerRecord<Long, T>> bufferedRecords = new ArrayDeque<>();
+
+    // Partition -> offset after the last record handed out, committed by commit()
+    private final Map<TopicPartition, OffsetAndMetadata> pendingOffsets = new HashMap<>();
+
+    public KafkaNetworkReceiver(String kafkaAddress, Deserializer<T> deserializer, KafkaTopic receiveTopic, String consumerID, int maxPollRecords) {
         final Properties consumerProps = new Properties();
         consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaAddress);
         consumerProps.put(ConsumerConfig.CLIENT_ID_CONFIG, KafkaConstants.CLIENT_ID);
         consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class.getName());
         consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer.getClass().getName());
-        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, consumerID);
 
         consumer = new KafkaConsumer<>(consumerProps);
-        consumer.subscribe(Collections.singletonList(receiveTopic.toString()));
+        consumer.subscribe(Collections.singletonList(receiveTopic.toString()), new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                // Records of revoked partitions are delivered to their new owner, which starts at the last commit
+                bufferedRecords.removeIf(record -> partitions.contains(new TopicPartition(record.topic(), record.partition())));
+                pendingOffsets.keySet().removeAll(partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+        });
     }
 
     @Override
     public T receive() {
         while (true) {
-            final ConsumerRecords<Long, T> records = consumer.poll(CONSUMER_TIMEOUT);
+            final List<T> messages = receiveBatch(1, CONSUMER_TIMEOUT);
 
-            if (!records.isEmpty()) {
-                return records.iterator().next().value();
+            if (!messages.isEmpty()) {
+                commit();
+                return messages.get(0);
             }
         }
     }
 
-    public static void setKafkaAddress(String address) {
-        kafkaAddress = address;
+    @Override
+    public List<T> receiveBatch(int maxRecords, Duration maxWait) {
+        if (bufferedRecords.isEmpty())
+            consumer.poll(maxWait).forEach(bufferedRecords::add);
+
+        final List<T> messages = new ArrayList<>(Math.min(maxRecords, bufferedRecords.size()));
+
+        while (messages.size() < maxRecords && !bufferedRecords.isEmpty()) {
+            final ConsumerRecord<Long, T> record = bufferedRecords.poll();
+
+            pendingOffsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+            messages.add(record.value());
+        }
+
+        return messages;
+    }
+
+    @Override
+    public void commit() {
+        if (pendingOffsets.isEmpty())
+            return;
+
+        consumer.commitSync(pendingOffsets);
+        pendingOffsets.clear();
     }
 }
@@ -11,11 +11,10 @@ import org.apache.kafka.common.serialization.Serializer;
 import java.util.Properties;
 
 public class KafkaNetworkSender<T> implements NetworkSender<T> {
-    private static String kafkaAddress;
     private final KafkaTopic sendTopic;
     private final KafkaProducer<Long, T> producer;
 
-    public KafkaNetworkSender(Serializer<T> serializer, KafkaTopic sendTopic) {
+    public KafkaNetworkSender(String kafkaAddress, Serializer<T> serializer, KafkaTopic sendTopic) {
         this.sendTopic = sendTopic;
 
         final Properties producerProps = new Properties();
@@ -30,8 +29,4 @@ public class KafkaNetworkSender<T> implements NetworkSender<T> {
     public void send(Long key, T element) {
         producer.send(new ProducerRecord<>(sendTopic.toString(), key, element));
     }
-
-    public static void setKafkaAddress(String address) {
-        kafkaAddress = address;
-    }
 }
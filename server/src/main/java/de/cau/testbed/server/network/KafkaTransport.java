@@ -0,0 +1,39 @@
+package de.cau.testbed.server.network;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+public class KafkaTransport implements NetworkTransport {
+    private final String kafkaAddress;
+
+    public KafkaTransport(String kafkaAddress) {
+        this.kafkaAddress = kafkaAddress;
+    }
+
+    @Override
+    public <T> NetworkSender<T> createSender(Serializer<T> serializer, KafkaTopic topic) {
+        return new KafkaNetworkSender<>(kafkaAddress, serializer, topic);
+    }
+
+    @Override
+    public <T> NetworkReceiver<T> createReceiver(Deserializer<T> deserializer, KafkaTopic topic, String consumerGroup, int maxPollRecords) {
+        return new KafkaNetworkReceiver<>(kafkaAddress, deserializer, topic, consumerGroup, maxPollRecords);
+    }
+
+    @Override
+    public <T> Thread createWorkerPool(
+            Deserializer<T> deserializer,
+            KafkaTopic topic,
+            String consumerGroup,
+            int numWorkers,
+            int queueCapacity,
+            int maxPollRecords,
+            Function<T, ? extends CompletionStage<?>> handler
+    ) {
+        return new KafkaWorkerPool<>(kafkaAddress, deserializer, topic, consumerGroup, numWorkers, queueCapacity, maxPollRecords, handler);
+    }
+}
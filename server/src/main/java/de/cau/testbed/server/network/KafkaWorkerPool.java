@@ -0,0 +1,173 @@
+package de.cau.testbed.server.network;
+
+import de.cau.testbed.server.constants.KafkaConstants;
+import de.cau.testbed.server.constants.KafkaTopic;
+import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Receives the messages of one topic with a single consumer and hands them to a pool of worker threads, so the number
+ * of concurrent handlers does not depend on the number of partitions.
+ * <p>
+ * About 'queueCapacity' messages at most wait for or are in handling at any time, where a message is in handling
+ * until the stage returned by the handler completes. Once fewer than a full poll fit into the queue, all partitions
+ * are paused until workers catch up. Offsets are committed up to the first message of each
+ * partition that has not been handled, yet, so a crash only redelivers unhandled (or still running) messages.
+ */
+public class KafkaWorkerPool<T> extends Thread {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KafkaWorkerPool.class);
+    private static final Duration CONSUMER_TIMEOUT = Duration.ofMillis(1_000);
+
+    private final KafkaConsumer<Long, T> consumer;
+    private final ExecutorService workers;
+    private final Function<T, ? extends CompletionStage<?>> handler;
+
+    private final int queueCapacity;
+    private final int maxPollRecords;
+
+    // Messages submitted to the workers that have not been handled, yet
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+
+    // Partition -> offsets of the partition's messages that have not been handled, yet
+    private final Map<TopicPartition, NavigableSet<Long>> unhandledOffsets = new ConcurrentHashMap<>();
+
+    // Partition -> offset after the last message submitted to the workers, only accessed by the consumer thread
+    private final Map<TopicPartition, Long> submittedOffsets = new HashMap<>();
+
+    // Partition -> last committed offset, only accessed by the consumer thread
+    private final Map<TopicPartition, Long> committedOffsets = new HashMap<>();
+
+    public KafkaWorkerPool(
+            String kafkaAddress,
+            Deserializer<T> deserializer,
+            KafkaTopic receiveTopic,
+            String consumerID,
+            int numWorkers,
+            int queueCapacity,
+            int maxPollRecords,
+            Function<T, ? extends CompletionStage<?>> handler
+    ) {
+        super(receiveTopic + "-consumer");
+        setDaemon(true);
+
+        this.handler = handler;
+        this.queueCapacity = queueCapacity;
+        this.maxPollRecords = Math.min(maxPollRecords, queueCapacity);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, receiveTopic + "-worker-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaAddress);
+        consumerProps.put(ConsumerConfig.CLIENT_ID_CONFIG, KafkaConstants.CLIENT_ID);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer.getClass().getName());
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, this.maxPollRecords);
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, consumerID);
+
+        this.consumer = new KafkaConsumer<>(consumerProps);
+        this.consumer.subscribe(Collections.singletonList(receiveTopic.toString()), new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                commitHandledOffsets();
+
+                // Messages still in handling are delivered to the partition's new owner again
+                for (TopicPartition partition : partitions) {
+                    unhandledOffsets.remove(partition);
+                    submittedOffsets.remove(partition);
+                    committedOffsets.remove(partition);
+                }
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            applyBackpressure();
+
+            for (ConsumerRecord<Long, T> record : consumer.poll(CONSUMER_TIMEOUT))
+                submit(record);
+
+            commitHandledOffsets();
+        }
+    }
+
+    private void applyBackpressure() {
+        final Set<TopicPartition> assignment = consumer.assignment();
+
+        if (queueCapacity - pendingMessages.get() < maxPollRecords) {
+            consumer.pause(assignment);
+        } else if (!consumer.paused().isEmpty()) {
+            consumer.resume(consumer.paused());
+        }
+    }
+
+    private void submit(ConsumerRecord<Long, T> record) {
+        final TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        final NavigableSet<Long> partitionOffsets = unhandledOffsets.computeIfAbsent(partition, p -> new ConcurrentSkipListSet<>());
+
+        partitionOffsets.add(record.offset());
+        submittedOffsets.put(partition, record.offset() + 1);
+        pendingMessages.incrementAndGet();
+
+        workers.execute(() -> {
+            CompletionStage<?> handling;
+
+            try {
+                handling = handler.apply(record.value());
+            } catch (RuntimeException e) {
+                handling = CompletableFuture.failedFuture(e);
+            }
+
+            handling.whenComplete((result, error) -> {
+                if (error != null)
+                    LOGGER.error("Failed to handle message of " + partition + " at offset " + record.offset(), error);
+
+                partitionOffsets.remove(record.offset());
+                pendingMessages.decrementAndGet();
+            });
+        });
+    }
+
+    private void commitHandledOffsets() {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+
+        for (Map.Entry<TopicPartition, Long> submitted : submittedOffsets.entrySet()) {
+            final TopicPartition partition = submitted.getKey();
+            final NavigableSet<Long> partitionOffsets = unhandledOffsets.get(partition);
+
+            // Everything before the first unhandled message is done, but later messages may have finished earlier
+            final Long firstUnhandled = partitionOffsets != null ? partitionOffsets.ceiling(Long.MIN_VALUE) : null;
+            final long committable = firstUnhandled != null ? firstUnhandled : submitted.getValue();
+
+            if (!Objects.equals(committedOffsets.get(partition), committable))
+                offsets.put(partition, new OffsetAndMetadata(committable));
+        }
+
+        if (offsets.isEmpty())
+            return;
+
+        consumer.commitSync(offsets);
+        offsets.forEach((partition, offset) -> committedOffsets.put(partition, offset.offset()));
+    }
+}
@@ -1,10 +1,28 @@
 package de.cau.testbed.server.network;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Provides a simple interface to receive network messages of a specific type.
  * This can e.g. be done via Apache Kafka.
  * @param <T>
  */
 public interface NetworkReceiver<T> {
+    /**
+     * Waits for a single message and acknowledges it right away.
+     */
     T receive();
+
+    /**
+     * Waits up to the given time for messages and returns at most the given number of them, possibly none.
+     * Returned messages are only acknowledged by the next call to {@link #commit()}, so they are delivered again
+     * after a crash before that.
+     */
+    List<T> receiveBatch(int maxRecords, Duration maxWait);
+
+    /**
+     * Acknowledges all messages returned by {@link #receiveBatch(int, Duration)} so far.
+     */
+    void commit();
 }
@@ -0,0 +1,33 @@
+package de.cau.testbed.server.network;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Creates the senders and receivers of one message transport, e.g. Kafka.
+ */
+public interface NetworkTransport {
+    <T> NetworkSender<T> createSender(Serializer<T> serializer, KafkaTopic topic);
+
+    <T> NetworkReceiver<T> createReceiver(Deserializer<T> deserializer, KafkaTopic topic, String consumerGroup, int maxPollRecords);
+
+    /**
+     * Creates a thread that receives the messages of the topic and hands them to the given number of workers, with
+     * at most about 'queueCapacity' messages waiting for or in handling. A message is in handling until the stage
+     * returned by the handler completes, so handlers can finish it on another thread. The thread still has to be
+     * started.
+     */
+    <T> Thread createWorkerPool(
+            Deserializer<T> deserializer,
+            KafkaTopic topic,
+            String consumerGroup,
+            int numWorkers,
+            int queueCapacity,
+            int maxPollRecords,
+            Function<T, ? extends CompletionStage<?>> handler
+    );
+}
@@ -0,0 +1,102 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the combined throughput of all transfers streaming through it.
+ * Transfers may take up to one second worth of bytes at once and otherwise wait until their share is available.
+ */
+public class BandwidthBudget {
+    private final long bytesPerSecond;
+
+    // Bytes that may be transferred right now, negative while transfers wait for bytes they already claimed
+    private double availableBytes;
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond combined limit of all transfers, 0 for no limit
+     */
+    public BandwidthBudget(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.availableBytes = bytesPerSecond;
+    }
+
+    public boolean isLimited() {
+        return bytesPerSecond > 0;
+    }
+
+    /**
+     * Claims the given number of bytes, waiting until they fit into the budget.
+     */
+    public void consume(int bytes) throws InterruptedIOException {
+        if (!isLimited() || bytes <= 0)
+            return;
+
+        final long waitNanos;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+
+            availableBytes = Math.min(bytesPerSecond, availableBytes + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+            availableBytes -= bytes;
+
+            waitNanos = availableBytes < 0 ? (long) (-availableBytes * 1e9 / bytesPerSecond) : 0;
+        }
+
+        if (waitNanos == 0)
+            return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    public InputStream throttle(InputStream inputStream) {
+        if (!isLimited())
+            return inputStream;
+
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                final int value = super.read();
+
+                if (value >= 0)
+                    consume(1);
+
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                final int count = super.read(buffer, offset, length);
+                consume(count);
+
+                return count;
+            }
+        };
+    }
+
+    public OutputStream throttle(OutputStream outputStream) {
+        if (!isLimited())
+            return outputStream;
+
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int value) throws IOException {
+                consume(1);
+                out.write(value);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                consume(length);
+                out.write(buffer, offset, length);
+            }
+        };
+    }
+}
@@ -1,47 +1,79 @@
 package de.cau.testbed.server.network.fileTransfer;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import net.schmizz.sshj.SSHClient;
-import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Transfers files via SCP over connections borrowed from a {@link SSHConnectionPool}.
+ * Transfer latency is recorded separately for reused connections ('reusedConnection') and for connections that had
+ * to be established first ('newConnection'), which includes key exchange and authentication.
+ * Local files are read and written within the given {@link BandwidthBudget}.
+ */
 public class SCPFileTransferHandler implements FileTransferHandler {
+    private final SSHConnectionPool connectionPool;
+    private final BandwidthBudget bandwidthBudget;
+
+    private final Timer reusedConnectionTimer;
+    private final Timer newConnectionTimer;
+
+    public SCPFileTransferHandler(SSHConnectionPool connectionPool, BandwidthBudget bandwidthBudget, MetricRegistry metrics) {
+        this.connectionPool = connectionPool;
+        this.bandwidthBudget = bandwidthBudget;
+        this.reusedConnectionTimer = metrics.timer(MetricRegistry.name(SCPFileTransferHandler.class, "reusedConnection"));
+        this.newConnectionTimer = metrics.timer(MetricRegistry.name(SCPFileTransferHandler.class, "newConnection"));
+    }
+
     @Override
     public void upload(TransferTarget target, Path localPath) throws IOException {
-        final SSHClient sshClient = createSSHConnection(target.host());
-
-        try {
-            sshClient.authPublickey(target.user());
-            sshClient.newSCPFileTransfer().upload(
-                    localPath.toString(),
-                    target.path().toString()
-            );
-        } finally {
-            sshClient.disconnect();
-        }
+        transfer(target, sshClient -> sshClient.newSCPFileTransfer().upload(
+                new ThrottledFile(localPath.toFile(), bandwidthBudget),
+                target.path().toString()
+        ));
     }
 
     @Override
     public void download(TransferTarget target, Path localPath) throws IOException {
-        final SSHClient sshClient = createSSHConnection(target.host());
+        transfer(target, sshClient -> sshClient.newSCPFileTransfer().download(
+                target.path().toString(),
+                new ThrottledFile(localPath.toFile(), bandwidthBudget)
+        ));
+    }
+
+    private void transfer(TransferTarget target, Transfer transfer) throws IOException {
+        final long startNanos = System.nanoTime();
+        final SSHConnectionPool.PooledConnection connection = connectionPool.acquire(target.host(), target.user());
 
         try {
-            sshClient.authPublickey(target.user());
-            sshClient.newSCPFileTransfer().download(
-                    target.path().toString(),
-                    localPath.toString()
-            );
-        } finally {
-            sshClient.disconnect();
+            runOn(connection, transfer);
+        } catch (IOException e) {
+            // Idle connections may have been dropped by the node without us noticing, so retry once
+            if (!connection.isReused())
+                throw e;
+
+            runOn(connectionPool.acquire(target.host(), target.user()), transfer);
         }
+
+        final Timer timer = connection.isReused() ? reusedConnectionTimer : newConnectionTimer;
+        timer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
-    private SSHClient createSSHConnection(String target) throws IOException {
-        final SSHClient sshClient = new SSHClient();
-        sshClient.addHostKeyVerifier(new PromiscuousVerifier());
-        sshClient.connect(target);
+    private void runOn(SSHConnectionPool.PooledConnection connection, Transfer transfer) throws IOException {
+        try {
+            transfer.run(connection.getClient());
+        } catch (IOException | RuntimeException e) {
+            connectionPool.invalidate(connection);
+            throw e;
+        }
+
+        connectionPool.release(connection);
+    }
 
-        return sshClient;
+    private interface Transfer {
+        void run(SSHClient sshClient) throws IOException;
     }
 }
@@ -0,0 +1,164 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of authenticated SSH connections, kept per host and user.
+ * At most {@link #MAX_CONNECTIONS_PER_HOST} connections per host and user exist at a time, further transfers wait for
+ * one to be returned. Idle connections are checked before reuse and closed after {@link #IDLE_TIMEOUT_MILLIS}.
+ */
+public class SSHConnectionPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SSHConnectionPool.class);
+    private static final int MAX_CONNECTIONS_PER_HOST = 4;
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000;
+
+    // Host and user -> connections of that host
+    private final Map<HostKey, HostConnections> connectionsByHost = new ConcurrentHashMap<>();
+
+    public SSHConnectionPool() {
+        new Timer(true).schedule(new TimerTask() {
+            @Override
+            public void run() {
+                evictIdleConnections();
+            }
+        }, IDLE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Borrows a connection to the given host, connecting and authenticating a new one if no idle connection is usable.
+     * Has to be returned with {@link #release(PooledConnection)} or, if it failed, {@link #invalidate(PooledConnection)}.
+     */
+    public PooledConnection acquire(String host, String user) throws IOException {
+        final HostKey key = new HostKey(host, user);
+        final HostConnections connections = connectionsByHost.computeIfAbsent(key, k -> new HostConnections());
+
+        connections.permits.acquireUninterruptibly();
+
+        try {
+            IdleConnection idleConnection;
+            while ((idleConnection = connections.pollIdle()) != null) {
+                if (isHealthy(idleConnection.client()))
+                    return new PooledConnection(key, idleConnection.client(), true);
+
+                disconnect(idleConnection.client());
+            }
+
+            return new PooledConnection(key, connect(host, user), false);
+        } catch (IOException | RuntimeException e) {
+            connections.permits.release();
+            throw e;
+        }
+    }
+
+    public void release(PooledConnection connection) {
+        final HostConnections connections = connectionsByHost.get(connection.key);
+
+        connections.addIdle(new IdleConnection(connection.client, System.currentTimeMillis()));
+        connections.permits.release();
+    }
+
+    public void invalidate(PooledConnection connection) {
+        disconnect(connection.client);
+        connectionsByHost.get(connection.key).permits.release();
+    }
+
+    private void evictIdleConnections() {
+        final long evictBefore = System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS;
+
+        for (HostConnections connections : connectionsByHost.values()) {
+            for (SSHClient client : connections.removeIdleSince(evictBefore))
+                disconnect(client);
+        }
+    }
+
+    private static boolean isHealthy(SSHClient client) {
+        return client.isConnected() && client.isAuthenticated();
+    }
+
+    private static SSHClient connect(String host, String user) throws IOException {
+        final SSHClient sshClient = new SSHClient();
+        sshClient.addHostKeyVerifier(new PromiscuousVerifier());
+
+        try {
+            sshClient.connect(host);
+            sshClient.authPublickey(user);
+        } catch (IOException e) {
+            disconnect(sshClient);
+            throw e;
+        }
+
+        return sshClient;
+    }
+
+    private static void disconnect(SSHClient client) {
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close SSH connection", e);
+        }
+    }
+
+    private record HostKey(String host, String user) {
+    }
+
+    private record IdleConnection(SSHClient client, long idleSince) {
+    }
+
+    private static class HostConnections {
+        private final Semaphore permits = new Semaphore(MAX_CONNECTIONS_PER_HOST);
+
+        // Most recently used connection first, so rarely used ones run into the idle timeout
+        private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+        synchronized IdleConnection pollIdle() {
+            return idleConnections.pollFirst();
+        }
+
+        synchronized void addIdle(IdleConnection connection) {
+            idleConnections.addFirst(connection);
+        }
+
+        synchronized List<SSHClient> removeIdleSince(long evictBefore) {
+            final List<SSHClient> evicted = new ArrayList<>();
+
+            while (!idleConnections.isEmpty() && idleConnections.peekLast().idleSince() < evictBefore)
+                evicted.add(idleConnections.pollLast().client());
+
+            return evicted;
+        }
+    }
+
+    /**
+     * Connection borrowed from the pool.
+     */
+    public static final class PooledConnection {
+        private final HostKey key;
+        private final SSHClient client;
+        private final boolean reused;
+
+        private PooledConnection(HostKey key, SSHClient client, boolean reused) {
+            this.key = key;
+            this.client = client;
+            this.reused = reused;
+        }
+
+        public SSHClient getClient() {
+            return client;
+        }
+
+        /**
+         * @return whether the connection was established for an earlier transfer
+         */
+        public boolean isReused() {
+            return reused;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.connection.channel.direct.Session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads directories file by file as gzip streams produced on the node, leaving uploads to the given handler.
+ * Every file is received into a '.part' file next to its target and only moved into place once its SHA-256 checksum
+ * matches the one computed on the node. A download that is repeated after a failure continues each '.part' file at
+ * its current length and skips files that are complete already.
+ * <p>
+ * Needs 'find', 'sha256sum', 'tail' and 'gzip' on the nodes. Resumed files and checksum mismatches, after which a
+ * file is received again from its start, are counted in the 'resumedFiles' and 'checksumMismatches' meters.
+ */
+public class StreamingDownloadHandler implements FileTransferHandler {
+    private static final String PART_SUFFIX = ".part";
+    private static final long COMMAND_TIMEOUT_SEC = 30;
+
+    private final FileTransferHandler uploadHandler;
+    private final SSHConnectionPool connectionPool;
+    private final BandwidthBudget bandwidthBudget;
+
+    private final Meter resumedFiles;
+    private final Meter checksumMismatches;
+
+    public StreamingDownloadHandler(
+            FileTransferHandler uploadHandler,
+            SSHConnectionPool connectionPool,
+            BandwidthBudget bandwidthBudget,
+            MetricRegistry metrics
+    ) {
+        this.uploadHandler = uploadHandler;
+        this.connectionPool = connectionPool;
+        this.bandwidthBudget = bandwidthBudget;
+        this.resumedFiles = metrics.meter(MetricRegistry.name(StreamingDownloadHandler.class, "resumedFiles"));
+        this.checksumMismatches = metrics.meter(MetricRegistry.name(StreamingDownloadHandler.class, "checksumMismatches"));
+    }
+
+    @Override
+    public void upload(TransferTarget target, Path localPath) throws IOException {
+        uploadHandler.upload(target, localPath);
+    }
+
+    /**
+     * Downloads all files below the target's directory into the given local directory. A target path ending in '*'
+     * (as sent by the nodes for SCP) denotes the directory containing it.
+     */
+    @Override
+    public void download(TransferTarget target, Path localPath) throws IOException {
+        final Path remoteDirectory = target.path().getFileName().toString().equals("*")
+                ? target.path().getParent()
+                : target.path();
+
+        final SSHConnectionPool.PooledConnection connection = connectionPool.acquire(target.host(), target.user());
+
+        try {
+            final Map<String, String> checksums = listChecksums(connection.getClient(), remoteDirectory);
+
+            for (Map.Entry<String, String> file : checksums.entrySet())
+                downloadFile(connection.getClient(), remoteDirectory, file.getKey(), file.getValue(), localPath);
+        } catch (IOException | RuntimeException e) {
+            connectionPool.invalidate(connection);
+            throw e;
+        }
+
+        connectionPool.release(connection);
+    }
+
+    /**
+     * @return relative path -> SHA-256 checksum of every file below the remote directory
+     */
+    private Map<String, String> listChecksums(SSHClient client, Path remoteDirectory) throws IOException {
+        final String output = execute(
+                client,
+                "cd " + quote(remoteDirectory.toString()) + " && find . -type f ! -name '*" + PART_SUFFIX + "' -exec sha256sum {} +"
+        );
+
+        final Map<String, String> checksums = new LinkedHashMap<>();
+
+        for (String line : output.split("\n")) {
+            if (line.isEmpty())
+                continue;
+
+            // sha256sum escapes names containing backslashes or line breaks and marks those lines with a backslash
+            if (line.startsWith("\\") || line.length() < 67)
+                throw new IOException("Unsupported checksum line: " + line);
+
+            final String fileName = line.substring(66);
+            checksums.put(fileName.startsWith("./") ? fileName.substring(2) : fileName, line.substring(0, 64));
+        }
+
+        return checksums;
+    }
+
+    private void downloadFile(SSHClient client, Path remoteDirectory, String fileName, String checksum, Path localDirectory) throws IOException {
+        final Path localFile = localDirectory.resolve(fileName).normalize();
+
+        if (!localFile.startsWith(localDirectory.normalize()))
+            throw new IOException("File " + fileName + " lies outside of the target directory");
+
+        if (Files.isRegularFile(localFile) && checksum.equals(hash(localFile)))
+            return;
+
+        final Path partFile = localFile.resolveSibling(localFile.getFileName() + PART_SUFFIX);
+        Files.createDirectories(localFile.getParent());
+
+        final long offset = Files.isRegularFile(partFile) ? Files.size(partFile) : 0;
+
+        if (offset > 0)
+            resumedFiles.mark();
+
+        // 'tail -c +N' starts at the N-th byte
+        final String command = "tail -c +" + (offset + 1) + " -- " + quote(remoteDirectory.resolve(fileName).toString()) + " | gzip -c";
+
+        try (Session session = client.startSession()) {
+            final Session.Command stream = session.exec(command);
+
+            try (InputStream inputStream = new GZIPInputStream(bandwidthBudget.throttle(stream.getInputStream()));
+                 OutputStream outputStream = Files.newOutputStream(partFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                inputStream.transferTo(outputStream);
+            }
+
+            awaitSuccess(stream, command);
+        }
+
+        if (!checksum.equals(hash(partFile))) {
+            checksumMismatches.mark();
+            Files.delete(partFile);
+            throw new IOException("Checksum of " + fileName + " does not match");
+        }
+
+        Files.move(partFile, localFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String execute(SSHClient client, String command) throws IOException {
+        try (Session session = client.startSession()) {
+            final Session.Command execution = session.exec(command);
+            final String output = new String(execution.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+            awaitSuccess(execution, command);
+
+            return output;
+        }
+    }
+
+    private static void awaitSuccess(Session.Command command, String commandLine) throws IOException {
+        final String errorOutput = new String(command.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        command.join(COMMAND_TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        final Integer exitStatus = command.getExitStatus();
+
+        // Within a pipeline only the last command's status is reported, so errors of 'tail' show up on stderr only
+        if (exitStatus == null || exitStatus != 0 || !errorOutput.isBlank())
+            throw new IOException("Command '" + commandLine + "' failed with status " + exitStatus + ": " + errorOutput.trim());
+    }
+
+    private static String hash(Path file) throws IOException {
+        final MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String quote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+}
@@ -0,0 +1,64 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import net.schmizz.sshj.xfer.FileSystemFile;
+import net.schmizz.sshj.xfer.LocalFileFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local file or directory whose contents are read and written within a {@link BandwidthBudget}.
+ * Files of transferred directories are throttled as well.
+ */
+class ThrottledFile extends FileSystemFile {
+    private final BandwidthBudget budget;
+
+    ThrottledFile(File file, BandwidthBudget budget) {
+        super(file);
+        this.budget = budget;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return budget.throttle(super.getInputStream());
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return getOutputStream(false);
+    }
+
+    @Override
+    public OutputStream getOutputStream(boolean append) throws IOException {
+        return budget.throttle(super.getOutputStream(append));
+    }
+
+    @Override
+    public Iterable<FileSystemFile> getChildren(LocalFileFilter filter) throws IOException {
+        final List<FileSystemFile> children = new ArrayList<>();
+
+        for (FileSystemFile child : super.getChildren(filter))
+            children.add(new ThrottledFile(child.getFile(), budget));
+
+        return children;
+    }
+
+    @Override
+    public FileSystemFile getChild(String name) {
+        return new ThrottledFile(super.getChild(name).getFile(), budget);
+    }
+
+    @Override
+    public FileSystemFile getTargetFile(String fileName) throws IOException {
+        return new ThrottledFile(super.getTargetFile(fileName).getFile(), budget);
+    }
+
+    @Override
+    public FileSystemFile getTargetDirectory(String dirName) throws IOException {
+        return new ThrottledFile(super.getTargetDirectory(dirName).getFile(), budget);
+    }
+}
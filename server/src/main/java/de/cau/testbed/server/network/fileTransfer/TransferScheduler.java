@@ -0,0 +1,202 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import de.cau.testbed.server.constants.TransferPriority;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the firmware and log transfers of all worker threads on its own threads, admitting them in order of their
+ * {@link TransferPriority}. Callers only enqueue a transfer and get a future that completes once it is done, so no
+ * worker thread waits for admission.
+ * <p>
+ * At most 'maxConcurrentTransfers' transfers run at a time and at most 'maxTransfersPerHost' per node. Transfers that
+ * do not have the highest priority leave one of these slots free, so firmware for an imminent experiment never waits
+ * for a long log download. Waiting transfers of a node at its limit do not hold back transfers to other nodes.
+ * <p>
+ * The number of waiting transfers is reported per priority in the 'queued' gauges and their waiting time in the
+ * 'wait' timers.
+ */
+public class TransferScheduler {
+    private static final TransferPriority HIGHEST_PRIORITY = TransferPriority.values()[0];
+
+    private final FileTransferHandler fileTransferHandler;
+    private final int maxConcurrentTransfers;
+    private final int maxTransfersPerHost;
+
+    // One thread per transfer that may run at a time, so admitted transfers never queue here
+    private final ExecutorService executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Waiting transfers by priority, then in order of arrival
+    private final NavigableSet<PendingTransfer> pendingTransfers = new TreeSet<>(
+            Comparator.comparing(PendingTransfer::priority).thenComparingLong(PendingTransfer::sequence)
+    );
+
+    // Host -> running transfers to or from that host
+    private final Map<String, Integer> runningByHost = new HashMap<>();
+    private final Map<TransferPriority, Integer> queuedByPriority = new EnumMap<>(TransferPriority.class);
+    private int runningTransfers;
+    private long nextSequence;
+
+    private final Map<TransferPriority, Timer> waitTimers = new EnumMap<>(TransferPriority.class);
+
+    public TransferScheduler(
+            FileTransferHandler fileTransferHandler,
+            int maxConcurrentTransfers,
+            int maxTransfersPerHost,
+            MetricRegistry metrics
+    ) {
+        this.fileTransferHandler = fileTransferHandler;
+        this.maxConcurrentTransfers = maxConcurrentTransfers;
+        this.maxTransfersPerHost = maxTransfersPerHost;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentTransfers, runnable -> {
+            final Thread thread = new Thread(runnable, "file-transfer-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (TransferPriority priority : TransferPriority.values()) {
+            queuedByPriority.put(priority, 0);
+            waitTimers.put(priority, metrics.timer(MetricRegistry.name(TransferScheduler.class, "wait", priority.name())));
+            metrics.gauge(MetricRegistry.name(TransferScheduler.class, "queued", priority.name()), () -> () -> getQueued(priority));
+        }
+
+        metrics.gauge(MetricRegistry.name(TransferScheduler.class, "running"), () -> this::getRunning);
+    }
+
+    public CompletableFuture<Void> upload(TransferPriority priority, TransferTarget target, Path localPath) {
+        return enqueue(priority, target.host(), () -> fileTransferHandler.upload(target, localPath));
+    }
+
+    public CompletableFuture<Void> download(TransferPriority priority, TransferTarget target, Path localPath) {
+        return enqueue(priority, target.host(), () -> fileTransferHandler.download(target, localPath));
+    }
+
+    private CompletableFuture<Void> enqueue(TransferPriority priority, String host, Transfer transfer) {
+        lock.lock();
+
+        try {
+            final PendingTransfer pendingTransfer = new PendingTransfer(
+                    priority, host, nextSequence++, transfer, System.nanoTime(), new CompletableFuture<>()
+            );
+            pendingTransfers.add(pendingTransfer);
+            queuedByPriority.merge(priority, 1, Integer::sum);
+
+            startPendingTransfers();
+
+            return pendingTransfer.result();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(PendingTransfer pendingTransfer) {
+        waitTimers.get(pendingTransfer.priority()).update(System.nanoTime() - pendingTransfer.enqueuedNanos(), TimeUnit.NANOSECONDS);
+
+        Throwable failure = null;
+
+        try {
+            pendingTransfer.transfer().run();
+        } catch (Throwable e) {
+            // Any failure has to complete the result, or the message would count as being handled forever
+            failure = e;
+        } finally {
+            finish(pendingTransfer.host());
+        }
+
+        // Completed only after the slot is free again, as callbacks run on this thread
+        if (failure == null)
+            pendingTransfer.result().complete(null);
+        else
+            pendingTransfer.result().completeExceptionally(failure);
+    }
+
+    private void finish(String host) {
+        lock.lock();
+
+        try {
+            runningTransfers--;
+            runningByHost.computeIfPresent(host, (h, count) -> count > 1 ? count - 1 : null);
+
+            startPendingTransfers();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits waiting transfers in order of priority as long as they fit within the limits. Called with the lock held.
+     */
+    private void startPendingTransfers() {
+        final Iterator<PendingTransfer> iterator = pendingTransfers.iterator();
+
+        while (iterator.hasNext() && runningTransfers < maxConcurrentTransfers) {
+            final PendingTransfer transfer = iterator.next();
+
+            if (runningTransfers >= getLimit(maxConcurrentTransfers, transfer.priority()))
+                break;
+
+            if (runningByHost.getOrDefault(transfer.host(), 0) >= getLimit(maxTransfersPerHost, transfer.priority()))
+                continue;
+
+            iterator.remove();
+            queuedByPriority.merge(transfer.priority(), -1, Integer::sum);
+            runningTransfers++;
+            runningByHost.merge(transfer.host(), 1, Integer::sum);
+
+            executor.execute(() -> run(transfer));
+        }
+    }
+
+    private static int getLimit(int limit, TransferPriority priority) {
+        return priority == HIGHEST_PRIORITY ? limit : Math.max(1, limit - 1);
+    }
+
+    private int getQueued(TransferPriority priority) {
+        lock.lock();
+
+        try {
+            return queuedByPriority.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getRunning() {
+        lock.lock();
+
+        try {
+            return runningTransfers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Transfer {
+        void run() throws IOException;
+    }
+
+    private record PendingTransfer(
+            TransferPriority priority,
+            String host,
+            long sequence,
+            Transfer transfer,
+            long enqueuedNanos,
+            CompletableFuture<Void> result
+    ) {
+    }
+}
@@ -0,0 +1,72 @@
+package de.cau.testbed.server.network.memory;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import de.cau.testbed.server.network.NetworkReceiver;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a topic of the {@link InMemoryTransport} as member of a consumer group.
+ * Messages are gone once received, so {@link #commit()} has nothing to do. While the topic holds no message for the
+ * group, the receiver blocks until one is published.
+ */
+class InMemoryNetworkReceiver<T> implements NetworkReceiver<T> {
+    private static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(1);
+
+    private final InMemoryTopic topic;
+    private final String topicName;
+    private final Deserializer<T> deserializer;
+    private final String consumerGroup;
+
+    InMemoryNetworkReceiver(InMemoryTopic topic, KafkaTopic kafkaTopic, Deserializer<T> deserializer, String consumerGroup) {
+        this.topic = topic;
+        this.topicName = kafkaTopic.toString();
+        this.deserializer = deserializer;
+        this.consumerGroup = consumerGroup;
+
+        topic.registerGroup(consumerGroup);
+    }
+
+    @Override
+    public T receive() {
+        while (true) {
+            final List<T> messages = receiveBatch(1, RECEIVE_TIMEOUT);
+
+            if (!messages.isEmpty())
+                return messages.get(0);
+        }
+    }
+
+    @Override
+    public List<T> receiveBatch(int maxRecords, Duration maxWait) {
+        final long deadline = System.nanoTime() + maxWait.toNanos();
+        final List<T> messages = new ArrayList<>();
+
+        while (deadline - System.nanoTime() > 0) {
+            byte[] message;
+
+            while (messages.size() < maxRecords && (message = topic.poll(consumerGroup)) != null)
+                messages.add(deserializer.deserialize(topicName, message));
+
+            if (!messages.isEmpty())
+                break;
+
+            try {
+                topic.awaitMessage(consumerGroup, deadline - System.nanoTime());
+            } catch (InterruptedException e) {
+                // Like a Kafka consumer, which also restores the interrupt flag
+                throw new InterruptException(e);
+            }
+        }
+
+        return messages;
+    }
+
+    @Override
+    public void commit() {
+    }
+}
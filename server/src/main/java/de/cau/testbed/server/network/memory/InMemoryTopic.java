@@ -0,0 +1,142 @@
+package de.cau.testbed.server.network.memory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-free ring buffer holding the serialized messages of one topic.
+ * Like in Kafka, every consumer group reads every message once, while consumers of the same group share the messages
+ * among each other. A group starts with the messages published after it was created.
+ * <p>
+ * Producers claim a sequence number and wait until every group has read the message previously stored in the slot, so
+ * a group that stops reading eventually blocks all producers of the topic.
+ * <p>
+ * Consumers without messages to read block in {@link #awaitMessage(String, long)} until a producer signals a new
+ * message. Producers only take the lock for this while a consumer is waiting.
+ */
+class InMemoryTopic {
+    private static final long WAIT_NANOS = 50_000;
+
+    private final int mask;
+    private final AtomicReferenceArray<byte[]> messages;
+
+    // Sequence number of the message currently stored in each slot, -1 while the slot is empty
+    private final AtomicLongArray publishedSequences;
+
+    // Next sequence number to be claimed by a producer
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    // Consumer group -> next sequence number the group reads
+    private final Map<String, AtomicLong> groupSequences = new ConcurrentHashMap<>();
+    private final List<AtomicLong> gatingSequences = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition messagePublished = waitLock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    InMemoryTopic(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two");
+
+        this.mask = capacity - 1;
+        this.messages = new AtomicReferenceArray<>(capacity);
+        this.publishedSequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++)
+            publishedSequences.set(i, -1);
+    }
+
+    void publish(byte[] message) {
+        final long sequence = claimSequence.getAndIncrement();
+        final int slot = (int) sequence & mask;
+
+        // The slot still holds the message of the previous round until every group has read it
+        while (sequence - (mask + 1) >= getSlowestGroupSequence(sequence))
+            LockSupport.parkNanos(WAIT_NANOS);
+
+        messages.set(slot, message);
+        publishedSequences.set(slot, sequence);
+
+        // Consumers register as waiting before checking for messages, so either they see this one or it is signalled
+        if (waitingConsumers.get() > 0) {
+            waitLock.lock();
+            try {
+                messagePublished.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    private long getSlowestGroupSequence(long sequence) {
+        long slowest = sequence;
+
+        for (AtomicLong groupSequence : gatingSequences)
+            slowest = Math.min(slowest, groupSequence.get());
+
+        return slowest;
+    }
+
+    /**
+     * @return the next unread message of the given group or null if there is none
+     */
+    byte[] poll(String consumerGroup) {
+        final AtomicLong groupSequence = groupSequences.get(consumerGroup);
+
+        while (true) {
+            final long sequence = groupSequence.get();
+            final int slot = (int) sequence & mask;
+
+            if (!isPublished(sequence))
+                return null;
+
+            final byte[] message = messages.get(slot);
+
+            // Another consumer of the group may have taken the message, after which the slot can be reused
+            if (groupSequence.compareAndSet(sequence, sequence + 1))
+                return message;
+        }
+    }
+
+    /**
+     * Blocks until the given group has an unread message or the timeout has passed.
+     */
+    void awaitMessage(String consumerGroup, long timeoutNanos) throws InterruptedException {
+        final AtomicLong groupSequence = groupSequences.get(consumerGroup);
+        long remainingNanos = timeoutNanos;
+
+        waitingConsumers.incrementAndGet();
+        waitLock.lock();
+        try {
+            while (!isPublished(groupSequence.get()) && remainingNanos > 0)
+                remainingNanos = messagePublished.awaitNanos(remainingNanos);
+        } finally {
+            waitLock.unlock();
+            waitingConsumers.decrementAndGet();
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedSequences.get((int) sequence & mask) == sequence;
+    }
+
+    void registerGroup(String consumerGroup) {
+        groupSequences.computeIfAbsent(consumerGroup, group -> {
+            // Gate producers from the start, so none overwrites a slot before the group's position is known
+            final AtomicLong groupSequence = new AtomicLong(0);
+            gatingSequences.add(groupSequence);
+            groupSequence.set(claimSequence.get());
+
+            return groupSequence;
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package de.cau.testbed.server.network.memory;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import de.cau.testbed.server.network.NetworkReceiver;
+import de.cau.testbed.server.network.NetworkSender;
+import de.cau.testbed.server.network.NetworkTransport;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Transport that passes messages between the server's own components without a broker, e.g. for load tests.
+ * Messages are serialized just like for Kafka, so the same (de)serializers are exercised. Nodes cannot connect to it.
+ */
+public class InMemoryTransport implements NetworkTransport {
+    private static final int TOPIC_CAPACITY = 1 << 16;
+
+    private final Map<KafkaTopic, InMemoryTopic> topics = new ConcurrentHashMap<>();
+
+    private InMemoryTopic getTopic(KafkaTopic topic) {
+        return topics.computeIfAbsent(topic, t -> new InMemoryTopic(TOPIC_CAPACITY));
+    }
+
+    @Override
+    public <T> NetworkSender<T> createSender(Serializer<T> serializer, KafkaTopic topic) {
+        final InMemoryTopic inMemoryTopic = getTopic(topic);
+
+        // Keys only select Kafka partitions, which do not exist here
+        return (key, element) -> inMemoryTopic.publish(serializer.serialize(topic.toString(), element));
+    }
+
+    @Override
+    public <T> NetworkReceiver<T> createReceiver(Deserializer<T> deserializer, KafkaTopic topic, String consumerGroup, int maxPollRecords) {
+        return new InMemoryNetworkReceiver<>(getTopic(topic), topic, deserializer, consumerGroup);
+    }
+
+    @Override
+    public <T> Thread createWorkerPool(
+            Deserializer<T> deserializer,
+            KafkaTopic topic,
+            String consumerGroup,
+            int numWorkers,
+            int queueCapacity,
+            int maxPollRecords,
+            Function<T, ? extends CompletionStage<?>> handler
+    ) {
+        return new InMemoryWorkerPool<>(
+                createReceiver(deserializer, topic, consumerGroup, maxPollRecords),
+                topic,
+                numWorkers,
+                queueCapacity,
+                maxPollRecords,
+                handler
+        );
+    }
+}
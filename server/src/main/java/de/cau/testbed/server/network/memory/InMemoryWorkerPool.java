@@ -0,0 +1,82 @@
+package de.cau.testbed.server.network.memory;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import de.cau.testbed.server.network.NetworkReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Counterpart of the Kafka worker pool for the {@link InMemoryTransport}. The receiving thread blocks while the
+ * queue of the workers is full, which leaves further messages in the topic.
+ */
+class InMemoryWorkerPool<T> extends Thread {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryWorkerPool.class);
+    private static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(1);
+
+    private final NetworkReceiver<T> receiver;
+    private final ExecutorService workers;
+    private final Function<T, ? extends CompletionStage<?>> handler;
+    private final int maxPollRecords;
+
+    // One permit per free place in the queue of the workers
+    private final Semaphore freeCapacity;
+
+    InMemoryWorkerPool(NetworkReceiver<T> receiver, KafkaTopic topic, int numWorkers, int queueCapacity, int maxPollRecords, Function<T, ? extends CompletionStage<?>> handler) {
+        super(topic + "-consumer");
+        setDaemon(true);
+
+        this.receiver = receiver;
+        this.handler = handler;
+        this.maxPollRecords = Math.min(maxPollRecords, queueCapacity);
+        this.freeCapacity = new Semaphore(queueCapacity);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, topic + "-worker-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            freeCapacity.acquireUninterruptibly(maxPollRecords);
+
+            int received = 0;
+            for (T message : receiver.receiveBatch(maxPollRecords, RECEIVE_TIMEOUT)) {
+                workers.execute(() -> handle(message));
+                received++;
+            }
+
+            freeCapacity.release(maxPollRecords - received);
+        }
+    }
+
+    private void handle(T message) {
+        CompletionStage<?> handling;
+
+        try {
+            handling = handler.apply(message);
+        } catch (RuntimeException e) {
+            handling = CompletableFuture.failedFuture(e);
+        }
+
+        // The message keeps its place in the queue until the handler has finished it
+        handling.whenComplete((result, error) -> {
+            if (error != null)
+                LOGGER.error("Failed to handle message " + message, error);
+
+            freeCapacity.release();
+        });
+    }
+}
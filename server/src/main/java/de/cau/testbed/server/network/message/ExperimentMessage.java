@@ -7,6 +7,7 @@ import de.cau.testbed.server.constants.NodeInvocationMethod;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class ExperimentMessage {
     @JsonProperty("name")
@@ -26,12 +27,21 @@ public class ExperimentMessage {
     @JsonProperty("action")
     private final NodeInvocationMethod action;
 
+    // Firmware name -> SHA-256 hash of its content, lets nodes use firmware they already hold
+    @JsonProperty("firmwareHashes")
+    public final Map<String, String> firmwareHashes;
+
     public ExperimentMessage(ExperimentDescriptor experimentDescriptor, NodeInvocationMethod action) {
+        this(experimentDescriptor, action, Map.of());
+    }
+
+    public ExperimentMessage(ExperimentDescriptor experimentDescriptor, NodeInvocationMethod action, Map<String, String> firmwareHashes) {
         this.name = experimentDescriptor.getName();
         this.nodes = experimentDescriptor.getNodes();
         this.experimentId = Long.toString(experimentDescriptor.getId());
         this.start = experimentDescriptor.getStart();
         this.end = experimentDescriptor.getEnd();
         this.action = action;
+        this.firmwareHashes = firmwareHashes;
     }
 }
@@ -13,13 +13,21 @@ public class FirmwareRetrievalMessage {
     public final String userName;
     public final Path targetPath;
 
+    // Hash of the firmware the node already holds and has put in place itself, null if it needs the transfer
+    public final String firmwareHash;
+
+    // Whether the firmware is fetched right after scheduling rather than for an imminent start
+    public final boolean staging;
+
     public FirmwareRetrievalMessage(
             @JsonProperty("firmware") String firmwareName,
             @JsonProperty("hostName") String hostName,
             @JsonProperty("userName") String userName,
             @JsonProperty("targetPath") String targetPath,
             @JsonProperty("experimentId") String experimentId,
-            @JsonProperty("nodeId") String nodeId
+            @JsonProperty("nodeId") String nodeId,
+            @JsonProperty("firmwareHash") String firmwareHash,
+            @JsonProperty("staging") boolean staging
     ) {
         this.firmwareName = firmwareName;
         this.hostName = hostName;
@@ -27,6 +35,8 @@ public class FirmwareRetrievalMessage {
         this.targetPath = Paths.get(targetPath);
         this.experimentId = Long.parseLong(experimentId);
         this.nodeId = nodeId;
+        this.firmwareHash = firmwareHash;
+        this.staging = staging;
     }
 
     @Override
@@ -37,6 +47,8 @@ public class FirmwareRetrievalMessage {
                 ", hostName='" + hostName + '\'' +
                 ", userName='" + userName + '\'' +
                 ", targetPath=" + targetPath +
+                ", firmwareHash='" + firmwareHash + '\'' +
+                ", staging=" + staging +
                 '}';
     }
 }
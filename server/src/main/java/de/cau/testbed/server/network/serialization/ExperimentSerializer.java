@@ -3,7 +3,11 @@ package de.cau.testbed.server.network.serialization;
 import de.cau.testbed.server.network.message.ExperimentMessage;
 import org.apache.kafka.common.serialization.Serializer;
 
-public class ExperimentSerializer extends JSONSerializer implements Serializer<ExperimentMessage> {
+public class ExperimentSerializer extends JSONSerializer<ExperimentMessage> implements Serializer<ExperimentMessage> {
+    public ExperimentSerializer() {
+        super(ExperimentMessage.class);
+    }
+
     @Override
     public byte[] serialize(String topic, ExperimentMessage data) {
         return serialize(data);
@@ -3,9 +3,13 @@ package de.cau.testbed.server.network.serialization;
 import de.cau.testbed.server.network.message.FirmwareRetrievalMessage;
 import org.apache.kafka.common.serialization.Deserializer;
 
-public class FirmwareRetrievalMessageDeserializer extends JSONDeserializer implements Deserializer<FirmwareRetrievalMessage> {
+public class FirmwareRetrievalMessageDeserializer extends JSONDeserializer<FirmwareRetrievalMessage> implements Deserializer<FirmwareRetrievalMessage> {
+    public FirmwareRetrievalMessageDeserializer() {
+        super(FirmwareRetrievalMessage.class);
+    }
+
     @Override
     public FirmwareRetrievalMessage deserialize(String topic, byte[] data) {
-        return deserialize(data, FirmwareRetrievalMessage.class);
+        return deserialize(data);
     }
 }
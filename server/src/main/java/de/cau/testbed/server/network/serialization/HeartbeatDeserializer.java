@@ -1,11 +1,100 @@
 package de.cau.testbed.server.network.serialization;
 
+import de.cau.testbed.server.network.message.Heartbeat;
 import de.cau.testbed.server.network.message.HeartbeatMessage;
 import org.apache.kafka.common.serialization.Deserializer;
 
-public class HeartbeatDeserializer extends JSONDeserializer implements Deserializer<HeartbeatMessage> {
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads heartbeats, which arrive far more often than any other message.
+ * The flat object '{"nodeId": "..."}' sent by the nodes is parsed by hand, allocating nothing but the node ID and the
+ * message. Anything else, e.g. further fields or escaped characters, is left to Jackson.
+ */
+public class HeartbeatDeserializer extends JSONDeserializer<HeartbeatMessage> implements Deserializer<HeartbeatMessage> {
+    private static final byte[] NODE_ID_KEY = "nodeId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID_KEY = "id".getBytes(StandardCharsets.US_ASCII);
+
+    public HeartbeatDeserializer() {
+        super(HeartbeatMessage.class);
+    }
+
     @Override
     public HeartbeatMessage deserialize(String topic, byte[] data) {
-        return deserialize(data, HeartbeatMessage.class);
+        final String nodeId = parseNodeId(data);
+
+        if (nodeId == null)
+            return deserialize(data);
+
+        return new Heartbeat(nodeId);
+    }
+
+    /**
+     * @return the node ID of a heartbeat consisting of the single field 'nodeId' (or 'id'), otherwise null
+     */
+    static String parseNodeId(byte[] data) {
+        int position = skipWhitespace(data, 0);
+
+        if (position >= data.length || data[position] != '{')
+            return null;
+
+        position = skipWhitespace(data, position + 1);
+        final int keyEnd = findStringEnd(data, position);
+
+        if (keyEnd < 0 || !isKey(data, position + 1, keyEnd))
+            return null;
+
+        position = skipWhitespace(data, keyEnd + 1);
+
+        if (position >= data.length || data[position] != ':')
+            return null;
+
+        position = skipWhitespace(data, position + 1);
+        final int valueStart = position + 1;
+        final int valueEnd = findStringEnd(data, position);
+
+        if (valueEnd < 0)
+            return null;
+
+        position = skipWhitespace(data, valueEnd + 1);
+
+        if (position >= data.length || data[position] != '}' || skipWhitespace(data, position + 1) != data.length)
+            return null;
+
+        return new String(data, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the position of the closing quote of the string starting at the given position, or -1 if there is no
+     * plain string without escapes or control characters
+     */
+    private static int findStringEnd(byte[] data, int position) {
+        if (position >= data.length || data[position] != '"')
+            return -1;
+
+        for (int i = position + 1; i < data.length; i++) {
+            final byte character = data[i];
+
+            if (character == '"')
+                return i;
+
+            if (character == '\\' || (character >= 0 && character < 0x20))
+                return -1;
+        }
+
+        return -1;
+    }
+
+    private static boolean isKey(byte[] data, int start, int end) {
+        return Arrays.equals(data, start, end, NODE_ID_KEY, 0, NODE_ID_KEY.length)
+                || Arrays.equals(data, start, end, ID_KEY, 0, ID_KEY.length);
+    }
+
+    private static int skipWhitespace(byte[] data, int position) {
+        while (position < data.length && (data[position] == ' ' || data[position] == '\t' || data[position] == '\n' || data[position] == '\r'))
+            position++;
+
+        return position;
     }
 }
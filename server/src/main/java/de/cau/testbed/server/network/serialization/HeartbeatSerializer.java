@@ -3,7 +3,11 @@ package de.cau.testbed.server.network.serialization;
 import de.cau.testbed.server.network.message.Heartbeat;
 import org.apache.kafka.common.serialization.Serializer;
 
-public class HeartbeatSerializer extends JSONSerializer implements Serializer<Heartbeat> {
+public class HeartbeatSerializer extends JSONSerializer<Heartbeat> implements Serializer<Heartbeat> {
+    public HeartbeatSerializer() {
+        super(Heartbeat.class);
+    }
+
     @Override
     public byte[] serialize(String topic, Heartbeat data) {
         return serialize(data);
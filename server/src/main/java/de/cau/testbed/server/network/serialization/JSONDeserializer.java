@@ -1,17 +1,30 @@
 package de.cau.testbed.server.network.serialization;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.kafka.common.errors.SerializationException;
 
-public class JSONDeserializer {
-    public <T> T deserialize(byte[] data, Class<T> objectClass) {
-        final ObjectMapper mapper = new ObjectMapper();
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Base class of the JSON deserializers. Each subclass reads its message type with a reader that is created once and
+ * parses the raw bytes directly.
+ */
+public class JSONDeserializer<T> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectReader reader;
+
+    protected JSONDeserializer(Class<T> objectClass) {
+        this.reader = MAPPER.readerFor(objectClass);
+    }
+
+    public T deserialize(byte[] data) {
         try {
-            return mapper.readValue(new String(data, "UTF-8"), objectClass);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new SerializationException(String.format("Failed to deserialize %s", new String(data)));
+            return reader.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException(String.format("Failed to deserialize %s", new String(data, StandardCharsets.UTF_8)), e);
         }
     }
 }
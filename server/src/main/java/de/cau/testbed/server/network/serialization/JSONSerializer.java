@@ -2,19 +2,29 @@ package de.cau.testbed.server.network.serialization;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.kafka.common.errors.SerializationException;
 
-public class JSONSerializer {
+/**
+ * Base class of the JSON serializers. Each subclass writes its message type with a writer that is created once.
+ */
+public class JSONSerializer<T> {
     private static final ObjectMapper MAPPER;
 
     static {
         MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
     }
 
-    public <T> byte[] serialize(T data) {
+    private final ObjectWriter writer;
+
+    protected JSONSerializer(Class<T> objectClass) {
+        this.writer = MAPPER.writerFor(objectClass);
+    }
+
+    public byte[] serialize(T data) {
         try {
-            return MAPPER.writeValueAsBytes(data);
+            return writer.writeValueAsBytes(data);
         } catch (JsonProcessingException e) {
             throw new SerializationException(String.format("Error serializing %s", data.toString()));
         }
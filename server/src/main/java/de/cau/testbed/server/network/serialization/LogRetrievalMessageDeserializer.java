@@ -3,9 +3,13 @@ package de.cau.testbed.server.network.serialization;
 import de.cau.testbed.server.network.message.LogRetrievalMessage;
 import org.apache.kafka.common.serialization.Deserializer;
 
-public class LogRetrievalMessageDeserializer extends JSONDeserializer implements Deserializer<LogRetrievalMessage> {
+public class LogRetrievalMessageDeserializer extends JSONDeserializer<LogRetrievalMessage> implements Deserializer<LogRetrievalMessage> {
+    public LogRetrievalMessageDeserializer() {
+        super(LogRetrievalMessage.class);
+    }
+
     @Override
     public LogRetrievalMessage deserialize(String topic, byte[] data) {
-        return deserialize(data, LogRetrievalMessage.class);
+        return deserialize(data);
     }
 }
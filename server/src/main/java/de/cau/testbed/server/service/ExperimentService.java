@@ -13,8 +13,10 @@ import de.cau.testbed.server.config.experiment.ExperimentModule;
 import de.cau.testbed.server.config.experiment.ExperimentNode;
 import de.cau.testbed.server.config.datastore.User;
 import de.cau.testbed.server.constants.ExperimentStatus;
-import de.cau.testbed.server.module.ExperimentSchedulingThread;
+import de.cau.testbed.server.module.ExperimentScheduler;
 import jakarta.ws.rs.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.zeroturnaround.zip.ZipUtil;
 
 import java.io.File;
@@ -24,56 +26,141 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ExperimentService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentService.class);
+
     private final Database database;
     private final List<HardwareNode> availableNodes;
-    private final ExperimentSchedulingThread experimentScheduler;
+    private final ExperimentScheduler experimentScheduler;
+
+    // Whether queued experiments are moved forward into time slots that become free
+    private final boolean backfillQueuedExperiments;
+
+    // Runs backfills, as they are requested by callers that may hold an experiment's lock, which must not be held
+    // while waiting for the database lock
+    private final ExecutorService backfillExecutor;
+
+    // Whether a backfill is requested, but has not started, yet
+    private final AtomicBoolean backfillRequested = new AtomicBoolean();
 
     private static final Object DATABASE_LOCK = new Object();
 
-    public ExperimentService(Database database, List<HardwareNode> availableNodes, ExperimentSchedulingThread experimentScheduler) {
+    public ExperimentService(
+            Database database,
+            List<HardwareNode> availableNodes,
+            ExperimentScheduler experimentScheduler,
+            boolean backfillQueuedExperiments
+    ) {
         this.database = database;
         this.availableNodes = availableNodes;
         this.experimentScheduler = experimentScheduler;
+        this.backfillQueuedExperiments = backfillQueuedExperiments;
+        this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "experiment-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public ExperimentDescriptor createNewExperiment(ExperimentTemplate template, User owner) throws TimeCollisionException, UnknownNodeException, UnknownModuleException {
+        return addExperiment(template, owner, false);
+    }
+
+    private ExperimentDescriptor addExperiment(ExperimentTemplate template, User owner, boolean queued) throws TimeCollisionException, UnknownNodeException, UnknownModuleException {
         synchronized (DATABASE_LOCK) {
             checkTimeStamps(template);
             checkTimeCollision(template);
             checkModules(template);
 
-            return database.addExperiment(template, owner);
+            return database.addExperiment(template, owner, queued);
         }
     }
 
     public ExperimentDescriptor queueNewExperiment(QueuedExperimentTemplate template, User owner) {
         synchronized (DATABASE_LOCK) {
-            final LocalDateTime start = determineFreeTimeSlot(template.duration()).truncatedTo(ChronoUnit.SECONDS);
+            final LocalDateTime start = determineFreeTimeSlot(template.duration(), template.nodes()).truncatedTo(ChronoUnit.SECONDS);
 
-            return createNewExperiment(new ExperimentTemplate(
+            return addExperiment(new ExperimentTemplate(
                     template.name(),
                     start,
                     start.plus(template.duration()),
                     template.nodes()
-            ), owner);
+            ), owner, true);
         }
     }
 
-    private LocalDateTime determineFreeTimeSlot(Duration duration) {
-        final Duration durationWithBuffer = duration.plusMinutes(10);
-
-        LocalDateTime previousTimestamp = LocalDateTime.now();
-        Optional<ExperimentDescriptor> nextExperiment = database.getCurrentOrNextExperiment();
+    /**
+     * Requests moving scheduled, queued experiments forward into time slots that have become free, e.g. due to
+     * cancelled or early stopped experiments. The backfill runs in the background, so this may be called while
+     * holding an experiment's lock. Requests made before a pending backfill starts are covered by it.
+     */
+    public void requestBackfill() {
+        if (!backfillQueuedExperiments || !backfillRequested.compareAndSet(false, true))
+            return;
+
+        backfillExecutor.execute(() -> {
+            backfillRequested.set(false);
+            backfillQueuedExperiments();
+        });
+    }
 
-        while (nextExperiment.isPresent() && previousTimestamp.plus(durationWithBuffer).isAfter(nextExperiment.get().getStart())) {
-            previousTimestamp = nextExperiment.get().getEnd();
-            nextExperiment = database.getFollowingExperiment(nextExperiment.get());
+    /**
+     * Moves scheduled, queued experiments forward into free time slots. Experiments are only ever moved to free slots
+     * on their nodes, so no other experiment is delayed by this. Earlier experiments are moved first.
+     * Takes the database lock before each experiment's lock, so it must not be called while holding the latter.
+     */
+    private void backfillQueuedExperiments() {
+        synchronized (DATABASE_LOCK) {
+            final LocalDateTime now = LocalDateTime.now();
+
+            for (ExperimentDescriptor experiment : database.getExperimentsWithStatus(ExperimentStatus.SCHEDULED)) {
+                // Checked again below, but filters out most experiments without taking their locks
+                if (!experiment.isQueued() || !experiment.getStart().isAfter(now.plusMinutes(5)))
+                    continue;
+
+                synchronized (experiment.getLockObject()) {
+                    // Only experiments that the scheduler has not started preparing, yet
+                    if (experiment.getStatus() != ExperimentStatus.SCHEDULED || !experiment.getStart().isAfter(now.plusMinutes(5)))
+                        continue;
+
+                    final Duration durationWithBuffer = Duration.between(experiment.getStart(), experiment.getEnd()).plusMinutes(10);
+                    final LocalDateTime start = database.findFreeTimeSlot(experiment, now, durationWithBuffer)
+                            .plusMinutes(5)
+                            .truncatedTo(ChronoUnit.SECONDS);
+
+                    if (!start.isBefore(experiment.getStart()))
+                        continue;
+
+                    LOGGER.info(String.format(
+                            "[Experiment %d] Moving queued experiment forward from %s to %s",
+                            experiment.getId(),
+                            experiment.getStart(),
+                            start
+                    ));
+
+                    database.rescheduleExperiment(experiment, start);
+                    experimentScheduler.schedule(experiment);
+                }
+            }
         }
+    }
+
+    /**
+     * Finds the earliest start time at which none of the given nodes is used by another experiment.
+     * Experiments on other nodes may run at the same time.
+     */
+    private LocalDateTime determineFreeTimeSlot(Duration duration, List<ExperimentNode> nodes) {
+        final Duration durationWithBuffer = duration.plusMinutes(10);
+        final Set<String> nodeIds = new HashSet<>();
 
-        return previousTimestamp.plusMinutes(5);
+        for (ExperimentNode node : nodes)
+            nodeIds.add(node.id());
+
+        return database.findFreeTimeSlot(nodeIds, LocalDateTime.now(), durationWithBuffer).plusMinutes(5);
     }
 
     private void checkTimeStamps(ExperimentTemplate template) {
@@ -85,13 +172,34 @@ public class ExperimentService {
     }
 
     private void checkTimeCollision(ExperimentTemplate template) throws TimeCollisionException {
-        final List<ExperimentDescriptor> experimentsInTimeFrame = database.getExperimentsInTimeFrame(
-                template.start.minusSeconds(299),
-                template.end.plusSeconds(299)
-        );
+        if (!getCollidingExperiments(template.start, template.end, template.nodes).isEmpty())
+            throw new TimeCollisionException("Experiment's start or end time is too close to another experiment on the same nodes");
+    }
+
+    /**
+     * Returns all unfinished experiments that use any of the given nodes within five minutes of the given time frame.
+     */
+    private List<ExperimentDescriptor> getCollidingExperiments(LocalDateTime start, LocalDateTime end, List<ExperimentNode> nodes) {
+        final Set<String> nodeIds = new HashSet<>();
+
+        for (ExperimentNode node : nodes)
+            nodeIds.add(node.id());
+
+        final List<ExperimentDescriptor> collidingExperiments = new ArrayList<>();
+
+        for (ExperimentDescriptor experiment : database.getExperimentsInTimeFrame(start.minusSeconds(299), end.plusSeconds(299))) {
+            if (experiment.getStatus().isFinished())
+                continue;
 
-        if (experimentsInTimeFrame.stream().anyMatch(x -> !x.getStatus().isFinished()))
-            throw new TimeCollisionException("Experiment's start or end time is too close to another experiment");
+            for (ExperimentNode node : experiment.getNodes()) {
+                if (nodeIds.contains(node.id())) {
+                    collidingExperiments.add(experiment);
+                    break;
+                }
+            }
+        }
+
+        return collidingExperiments;
     }
 
     private void checkModules(ExperimentTemplate template) throws UnknownModuleException, UnknownNodeException {
@@ -128,9 +236,9 @@ public class ExperimentService {
             checkExperimentFirmwareExists(experiment);
 
             experiment.setStatus(ExperimentStatus.SCHEDULED);
+            experimentScheduler.schedule(experiment);
+            experimentScheduler.stageFirmware(experiment);
         }
-
-        experimentScheduler.wakeup();
     }
 
     private void checkExperimentFirmwareExists(ExperimentDescriptor experiment) {
@@ -165,14 +273,13 @@ public class ExperimentService {
     }
 
     public List<ExperimentDescriptor> listUserExperiments(User user) {
-        final List<ExperimentDescriptor> experimentDescriptors = database.getExperiments().stream()
-                .filter(x -> user.equals(x.getOwner()))
-                .collect(Collectors.toList());
-        return experimentDescriptors;
+        return database.getExperimentsByOwner(user);
     }
 
     public AnonymizedExperimentInfo stopExperiment(long id, User user) {
         final ExperimentDescriptor experiment = getAuthorizedExperimentById(id, user);
+        final AnonymizedExperimentInfo experimentInfo;
+        final boolean cancelled;
 
         synchronized (experiment.getLockObject()) {
             if (experiment.getStatus().isFinished())
@@ -189,8 +296,15 @@ public class ExperimentService {
 
             experimentScheduler.stopExperiment(experiment);
 
-            return new AnonymizedExperimentInfo(experiment.getName(), experiment.getStart(), experiment.getEnd(), experiment.getId(), experiment.getStatus());
+            cancelled = experiment.getStatus() == ExperimentStatus.CANCELLED;
+            experimentInfo = new AnonymizedExperimentInfo(experiment.getName(), experiment.getStart(), experiment.getEnd(), experiment.getId(), experiment.getStatus());
         }
+
+        // Stopped experiments free their slot once their logs are retrieved, cancelled ones right away
+        if (cancelled)
+            requestBackfill();
+
+        return experimentInfo;
     }
 
     public File createOrGetResultsFile(long id, User user) {
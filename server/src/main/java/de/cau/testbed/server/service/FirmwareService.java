@@ -1,6 +1,7 @@
 package de.cau.testbed.server.service;
 
 
+import de.cau.testbed.server.util.FirmwareStore;
 import de.cau.testbed.server.util.PathUtil;
 import de.cau.testbed.server.config.datastore.Database;
 import de.cau.testbed.server.config.datastore.User;
@@ -11,7 +12,6 @@ import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
@@ -26,10 +26,7 @@ public class FirmwareService {
         // Will prevent upwards
         final Path safeFirmwarePath = PathUtil.sanitizeFileName(firmwareName);
 
-        Files.createDirectories(PathUtil.getFirmwarePath(experimentId));
-        final Path target = PathUtil.getFirmwarePath(experimentId).resolve(safeFirmwarePath);
-
-        Files.copy(uploadInputStream, target);
+        FirmwareStore.storeFirmware(uploadInputStream, experimentId, safeFirmwarePath);
     }
 
     public void authorizeUserForExperiment(User user, long experimentId) {
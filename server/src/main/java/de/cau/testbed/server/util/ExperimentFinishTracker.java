@@ -4,53 +4,58 @@ import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
 import de.cau.testbed.server.config.experiment.ExperimentNode;
 import de.cau.testbed.server.constants.ExperimentStatus;
 import de.cau.testbed.server.util.event.LogRetrievedEvent;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.Flow;
 
 /**
  * Determines when an experiment is finish by watching incoming {@link LogRetrievedEvent} events and setting the
  * experiment status to {@link ExperimentStatus#DONE} once all logs are retrieved.
  * Uses a timeout and sets the experiment status to {@link ExperimentStatus#FAILED_TO_RETRIEVE_LOGS} if not all logs
  * were retrieved within timeout period.
+ * <p>
+ * Events are delivered by the {@link LogRetrievedEventDispatcher}, possibly from several threads at once. The
+ * tracker's own lock is never held while taking the experiment's lock, as callers may hold the latter.
  */
-public class ExperimentFinishTracker implements Flow.Subscriber<LogRetrievedEvent> {
+public class ExperimentFinishTracker {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentFinishTracker.class);
     private static final int WAIT_TIMEOUT_MILLIS = 300_000;
 
-    private Flow.Subscription subscription;
+    private final LogRetrievedEventDispatcher dispatcher;
 
     private final ExperimentDescriptor descriptor;
 
+    // Called once the experiment has finished
+    private final Runnable finishListener;
+
     private final Set<String> retrievedIds;
 
     private Timer retrievalTimeoutTimer;
 
+    // Set once the tracker has stopped listening, because it is done, timed out or was replaced by another tracker
+    private boolean closed;
+
 
-    public ExperimentFinishTracker(ExperimentDescriptor descriptor, List<String> retrievedIds) {
+    public ExperimentFinishTracker(
+            ExperimentDescriptor descriptor,
+            Collection<String> retrievedIds,
+            LogRetrievedEventDispatcher dispatcher,
+            Runnable finishListener
+    ) {
         this.descriptor = descriptor;
         this.retrievedIds = new HashSet<>(retrievedIds);
+        this.dispatcher = dispatcher;
+        this.finishListener = finishListener;
     }
 
-    @Override
-    public void onSubscribe(Flow.Subscription subscription) {
-        this.subscription = subscription;
-
-        checkRetrievedIds();
-
-        if (!areAllLogsReceived()) {
-            initializeTimer();
-            subscription.request(1);
-        }
-    }
-
-    public void initializeTimer() {
-        retrievalTimeoutTimer = new Timer(true);
-
+    /**
+     * Starts waiting for the experiment's logs. The tracker has to be registered with the dispatcher before.
+     */
+    public void start() {
         // Wait until experiment end + timeout
         // If we initiated experiment stop, only wait for timeout
         final long timeout;
@@ -63,73 +68,108 @@ public class ExperimentFinishTracker implements Flow.Subscriber<LogRetrievedEven
             }
         }
 
-        retrievalTimeoutTimer.schedule(new TimeoutTimerTask(), timeout + WAIT_TIMEOUT_MILLIS);
+        final boolean done;
+        synchronized (this) {
+            if (closed)
+                return;
+
+            done = closeIfAllLogsReceived();
+
+            if (!done) {
+                retrievalTimeoutTimer = new Timer(true);
+                retrievalTimeoutTimer.schedule(new TimeoutTimerTask(), timeout + WAIT_TIMEOUT_MILLIS);
+            }
+        }
+
+        if (done)
+            onAllLogsReceived();
     }
 
-    private void cleanup() {
-        subscription.cancel();
+    public void onLogRetrieved(LogRetrievedEvent event) {
+        synchronized (this) {
+            if (closed)
+                return;
 
-        if (retrievalTimeoutTimer != null)
-            retrievalTimeoutTimer.cancel();
+            retrievedIds.add(event.nodeId());
+
+            if (!closeIfAllLogsReceived())
+                return;
+        }
+
+        onAllLogsReceived();
     }
 
-    private void checkRetrievedIds() {
-        if (!areAllLogsReceived())
-            return;
+    /**
+     * Stops this tracker without finishing the experiment, because another tracker takes over.
+     *
+     * @return the IDs of the nodes whose logs this tracker has seen
+     */
+    synchronized Set<String> handOver() {
+        closed = true;
 
-        LOGGER.info(String.format(
-                "[Experiment %d] Retrieved all logs. Experiment is done.",
-                descriptor.getId()
-        ));
+        if (retrievalTimeoutTimer != null)
+            retrievalTimeoutTimer.cancel();
 
-        cleanup();
+        return new HashSet<>(retrievedIds);
+    }
 
-        synchronized (descriptor.getLockObject()) {
-            descriptor.setStatus(ExperimentStatus.DONE);
-        }
+    synchronized void addRetrievedIds(Collection<String> ids) {
+        retrievedIds.addAll(ids);
     }
 
-    private boolean areAllLogsReceived() {
+    private boolean closeIfAllLogsReceived() {
         for (ExperimentNode node : descriptor.getNodes())
             if (!retrievedIds.contains(node.id()))
                 return false;
 
+        close();
+
         return true;
     }
 
-    @Override
-    public void onNext(LogRetrievedEvent event) {
-        if (!(event.experimentId() == descriptor.getId()))
-            return;
+    private void close() {
+        closed = true;
+        dispatcher.unregister(descriptor.getId(), this);
 
-        retrievedIds.add(event.nodeId());
-        subscription.request(1);
-
-        checkRetrievedIds();
+        if (retrievalTimeoutTimer != null)
+            retrievalTimeoutTimer.cancel();
     }
 
-    @Override
-    public void onError(Throwable throwable) {
-    }
+    private void onAllLogsReceived() {
+        LOGGER.info(String.format(
+                "[Experiment %d] Retrieved all logs. Experiment is done.",
+                descriptor.getId()
+        ));
 
-    @Override
-    public void onComplete() {
+        synchronized (descriptor.getLockObject()) {
+            descriptor.setStatus(ExperimentStatus.DONE);
+        }
+
+        finishListener.run();
     }
 
     class TimeoutTimerTask extends TimerTask {
         @Override
         public void run() {
+            synchronized (ExperimentFinishTracker.this) {
+                if (closed)
+                    return;
+
+                close();
+            }
+
             LOGGER.info(String.format(
                     "[Experiment %d] Failed to retrieve all logs.",
                     descriptor.getId()
             ));
-            subscription.cancel();
 
             // Experiment might have been cancelled or stopped before
             synchronized (descriptor.getLockObject()) {
                 if (!descriptor.getStatus().isFinished())
                     descriptor.setStatus(ExperimentStatus.FAILED_TO_RETRIEVE_LOGS);
             }
+
+            finishListener.run();
         }
     }
 }
@@ -2,47 +2,82 @@ package de.cau.testbed.server.util;
 
 import de.cau.testbed.server.config.datastore.Database;
 import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
-import de.cau.testbed.server.util.event.LogRetrievedEvent;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
 
 import java.io.File;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.SubmissionPublisher;
+import java.util.Set;
 
 public class ExperimentFinishTrackerFactory {
-    private final SubmissionPublisher<LogRetrievedEvent> logRetrievalPublisher;
+    private final LogRetrievedEventDispatcher logRetrievalDispatcher;
 
-    public ExperimentFinishTrackerFactory(SubmissionPublisher<LogRetrievedEvent> logRetrievalPublisher) {
-        this.logRetrievalPublisher = logRetrievalPublisher;
+    // Notified when an experiment finishes before its scheduled end and thus frees the rest of its time slot.
+    // Possibly called while the experiment's lock is held, so it must not wait for other locks.
+    private volatile Runnable earlyFinishListener = () -> {};
+
+    public ExperimentFinishTrackerFactory(LogRetrievedEventDispatcher logRetrievalDispatcher) {
+        this.logRetrievalDispatcher = logRetrievalDispatcher;
     }
 
-    public ExperimentFinishTracker createExperimentFinishTracker(ExperimentDescriptor descriptor) {
-        final ExperimentFinishTracker tracker = new ExperimentFinishTracker(descriptor, Collections.emptyList());
-        logRetrievalPublisher.subscribe(tracker);
+    public void setEarlyFinishListener(Runnable earlyFinishListener) {
+        this.earlyFinishListener = earlyFinishListener;
+    }
 
-        return tracker;
+    public ExperimentFinishTracker createExperimentFinishTracker(ExperimentDescriptor descriptor) {
+        return createTracker(descriptor, Collections.emptyList());
     }
 
     public List<ExperimentFinishTracker> createInitialTrackers(Database database) {
-        final List<ExperimentDescriptor> experiments = database.getExperiments();
         final List<ExperimentFinishTracker> trackers = new ArrayList<>();
 
-        for (ExperimentDescriptor descriptor : experiments) {
-            if (descriptor.getStatus().hasStarted() && !descriptor.getStatus().isFinished()) {
-                final List<String> retrievedLogs = compileRetrievedLogList(descriptor.getId());
+        for (ExperimentStatus status : ExperimentStatus.values()) {
+            if (!status.hasStarted() || status.isFinished())
+                continue;
 
-                final ExperimentFinishTracker tracker = new ExperimentFinishTracker(descriptor, retrievedLogs);
-                logRetrievalPublisher.subscribe(tracker);
+            for (ExperimentDescriptor descriptor : database.getExperimentsWithStatus(status)) {
+                final List<String> retrievedLogs = compileRetrievedLogList(descriptor.getId());
 
-                trackers.add(tracker);
+                trackers.add(createTracker(descriptor, retrievedLogs));
             }
         }
 
         return trackers;
     }
 
+    /**
+     * Creates and starts a tracker for the experiment. An existing tracker of the experiment, e.g. the one created at
+     * its start when the experiment is stopped, is replaced and hands over the logs it has seen so far.
+     */
+    private ExperimentFinishTracker createTracker(ExperimentDescriptor descriptor, List<String> retrievedLogs) {
+        final ExperimentFinishTracker tracker = new ExperimentFinishTracker(
+                descriptor,
+                retrievedLogs,
+                logRetrievalDispatcher,
+                () -> onFinish(descriptor)
+        );
+
+        final ExperimentFinishTracker previousTracker = logRetrievalDispatcher.register(descriptor.getId(), tracker);
+
+        if (previousTracker != null) {
+            final Set<String> handedOverLogs = previousTracker.handOver();
+            tracker.addRetrievedIds(handedOverLogs);
+        }
+
+        tracker.start();
+
+        return tracker;
+    }
+
+    private void onFinish(ExperimentDescriptor descriptor) {
+        if (LocalDateTime.now().isBefore(descriptor.getEnd()))
+            earlyFinishListener.run();
+    }
+
     private List<String> compileRetrievedLogList(long experimentId) {
         final File logPath = PathUtil.getLogPath(experimentId).toFile();
 
@@ -0,0 +1,80 @@
+package de.cau.testbed.server.util;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentModule;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which nodes hold the firmware of experiments that were staged ahead of their preparation.
+ * A node is ready once every firmware it needs was transferred to it or found in its cache.
+ * The state is kept in memory only, after a restart experiments are staged again.
+ */
+public class FirmwareStagingTracker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirmwareStagingTracker.class);
+
+    // Experiment ID -> node ID -> firmware the node has not acknowledged, yet
+    private final Map<Long, Map<String, Set<String>>> pendingFirmware = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking the given experiment, with all its firmware still missing on every node.
+     */
+    public void expect(ExperimentDescriptor descriptor) {
+        final Map<String, Set<String>> pendingByNode = new ConcurrentHashMap<>();
+
+        for (ExperimentNode node : descriptor.getNodes()) {
+            final Set<String> firmware = ConcurrentHashMap.newKeySet();
+
+            for (ExperimentModule module : node.modules())
+                firmware.add(module.firmware);
+
+            pendingByNode.put(node.id(), firmware);
+        }
+
+        pendingFirmware.put(descriptor.getId(), pendingByNode);
+    }
+
+    /**
+     * Acknowledges that the given node holds the firmware. Ignored for experiments that are not tracked.
+     */
+    public void markDelivered(long experimentId, String nodeId, String firmwareName) {
+        final Map<String, Set<String>> pendingByNode = pendingFirmware.get(experimentId);
+
+        if (pendingByNode == null)
+            return;
+
+        final Set<String> firmware = pendingByNode.get(nodeId);
+
+        if (firmware != null && firmware.remove(firmwareName) && firmware.isEmpty())
+            LOGGER.info(String.format("[Experiment %d] Firmware is staged on node %s", experimentId, nodeId));
+    }
+
+    /**
+     * @return the IDs of all nodes of the experiment that are missing firmware, which are all of them if the
+     * experiment was never staged
+     */
+    public List<String> getUnstagedNodes(ExperimentDescriptor descriptor) {
+        final Map<String, Set<String>> pendingByNode = pendingFirmware.get(descriptor.getId());
+        final List<String> unstagedNodes = new ArrayList<>();
+
+        for (ExperimentNode node : descriptor.getNodes()) {
+            final Set<String> firmware = pendingByNode != null ? pendingByNode.get(node.id()) : null;
+
+            if (firmware == null || !firmware.isEmpty())
+                unstagedNodes.add(node.id());
+        }
+
+        return unstagedNodes;
+    }
+
+    public void forget(long experimentId) {
+        pendingFirmware.remove(experimentId);
+    }
+}
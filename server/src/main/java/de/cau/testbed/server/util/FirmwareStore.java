@@ -0,0 +1,133 @@
+package de.cau.testbed.server.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Stores uploaded firmware by the SHA-256 hash of its content ('firmware-store/ab/abcd...'), so a binary reused across
+ * experiments is kept only once. Experiment firmware folders hold hard links to the stored blobs, falling back to
+ * copies where the file system does not support links.
+ * <p>
+ * The hash of every linked firmware is recorded in the experiment's 'firmware-hashes' folder and sent to the nodes,
+ * which skip the transfer of blobs they already hold.
+ */
+public class FirmwareStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirmwareStore.class);
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private FirmwareStore() {}
+
+    /**
+     * Stores the given content and links it into the experiment's firmware folder under the given name.
+     *
+     * @return the hash of the stored firmware
+     * @throws FileAlreadyExistsException if the experiment already has a firmware of that name
+     */
+    public static String storeFirmware(InputStream content, long experimentId, Path firmwareName) throws IOException {
+        final Path target = PathUtil.getFirmwarePath(experimentId).resolve(firmwareName);
+
+        if (Files.exists(target))
+            throw new FileAlreadyExistsException(target.toString());
+
+        final String hash = storeBlob(content);
+
+        Files.createDirectories(target.getParent());
+        linkOrCopy(PathUtil.getFirmwareBlobPath(hash), target);
+
+        final Path hashPath = PathUtil.getFirmwareHashPath(experimentId, firmwareName.toString());
+        Files.createDirectories(hashPath.getParent());
+        Files.writeString(hashPath, hash, StandardCharsets.US_ASCII);
+
+        return hash;
+    }
+
+    /**
+     * @return the hash of an experiment's firmware, which is computed from the file for firmware uploaded before the
+     * store existed
+     */
+    public static String getFirmwareHash(long experimentId, String firmwareName) throws IOException {
+        final Path hashPath = PathUtil.getFirmwareHashPath(experimentId, firmwareName);
+
+        if (Files.isRegularFile(hashPath))
+            return Files.readString(hashPath, StandardCharsets.US_ASCII).trim();
+
+        final Path firmwarePath = PathUtil.getFirmwarePath(experimentId).resolve(firmwareName);
+        final MessageDigest digest = createDigest();
+
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(firmwarePath), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+
+        final String hash = HexFormat.of().formatHex(digest.digest());
+
+        Files.createDirectories(hashPath.getParent());
+        Files.writeString(hashPath, hash, StandardCharsets.US_ASCII);
+
+        return hash;
+    }
+
+    private static String storeBlob(InputStream content) throws IOException {
+        final Path storePath = PathUtil.getFirmwareStorePath();
+        Files.createDirectories(storePath);
+
+        // Written to a temporary file first, as the hash and thereby the blob's name is only known afterwards
+        final Path temporaryPath = Files.createTempFile(storePath, "upload-", ".tmp");
+        final MessageDigest digest = createDigest();
+
+        try {
+            try (OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(temporaryPath), digest)) {
+                content.transferTo(outputStream);
+            }
+
+            final String hash = HexFormat.of().formatHex(digest.digest());
+            final Path blobPath = PathUtil.getFirmwareBlobPath(hash);
+
+            if (Files.exists(blobPath)) {
+                LOGGER.debug("Firmware " + hash + " is already stored");
+                return hash;
+            }
+
+            Files.createDirectories(blobPath.getParent());
+
+            try {
+                Files.move(temporaryPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored by a concurrent upload of the same content
+            }
+
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    private static void linkOrCopy(Path blobPath, Path target) throws IOException {
+        try {
+            Files.createLink(target, blobPath);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Could not link firmware " + blobPath + ", copying it instead: " + e.getMessage());
+            Files.copy(blobPath, target);
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
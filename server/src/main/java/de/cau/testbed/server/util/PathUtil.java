@@ -1,15 +1,35 @@
 package de.cau.testbed.server.util;
 
 import de.cau.testbed.server.config.exception.PathTraversalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Resolves the locations of experiment folders in the working directory.
+ * Experiment folders are sharded by their ID into two levels of sub-folders (e.g. 'experiments/00/12/1234'), so that
+ * no single directory grows with the total number of experiments.
+ */
 public class PathUtil {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PathUtil.class);
     private static final Path EXPERIMENTS_FOLDER = Paths.get("experiments");
+
+    // Holds the flat experiment folders while they are being moved into the sharded layout
+    private static final Path FLAT_EXPERIMENTS_FOLDER = Paths.get("experiments.flat");
+
+    // Marks an experiments folder that uses the sharded layout
+    private static final String SHARDED_MARKER_FILE_NAME = ".sharded";
     private static final Path FIRMWARE_FOLDER = Paths.get("firmware");
+    private static final Path FIRMWARE_HASHES_FOLDER = Paths.get("firmware-hashes");
+
+    // Holds the firmware of all experiments by content hash, see FirmwareStore
+    private static final Path FIRMWARE_STORE_FOLDER = Paths.get("firmware-store");
 
     private static final Path LOGGING_FOLDER = Paths.get("logs");
     private static Path workingDirectory;
@@ -25,17 +45,87 @@ public class PathUtil {
     }
 
     public static Path getExperimentPath(long experimentId) {
-        return getExperimentsPath().resolve(Long.toString(experimentId));
+        return getExperimentsPath()
+                .resolve(String.format("%02d", experimentId / 10_000 % 100))
+                .resolve(String.format("%02d", experimentId / 100 % 100))
+                .resolve(Long.toString(experimentId));
     }
 
     public static Path getFirmwarePath(long experimentId) {
         return getExperimentPath(experimentId).resolve(FIRMWARE_FOLDER);
     }
 
+    public static Path getFirmwareHashPath(long experimentId, String firmwareName) {
+        return getExperimentPath(experimentId).resolve(FIRMWARE_HASHES_FOLDER).resolve(firmwareName);
+    }
+
+    public static Path getFirmwareStorePath() {
+        return workingDirectory.resolve(FIRMWARE_STORE_FOLDER);
+    }
+
+    public static Path getFirmwareBlobPath(String hash) {
+        return getFirmwareStorePath().resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
     public static Path getLogPath(long experimentId) {
         return getExperimentPath(experimentId).resolve(LOGGING_FOLDER);
     }
 
+    /**
+     * Moves experiment folders of the old flat layout ('experiments/<id>') into the sharded layout.
+     * The flat folder is renamed first, so an interrupted migration is simply continued on the next start.
+     */
+    public static void migrateToShardedLayout() throws IOException {
+        final Path experimentsPath = getExperimentsPath();
+        final Path flatExperimentsPath = workingDirectory.resolve(FLAT_EXPERIMENTS_FOLDER);
+
+        if (!Files.isDirectory(flatExperimentsPath)) {
+            if (Files.exists(experimentsPath.resolve(SHARDED_MARKER_FILE_NAME)))
+                return;
+
+            if (Files.isDirectory(experimentsPath))
+                Files.move(experimentsPath, flatExperimentsPath);
+        }
+
+        Files.createDirectories(experimentsPath);
+
+        if (!Files.exists(experimentsPath.resolve(SHARDED_MARKER_FILE_NAME)))
+            Files.createFile(experimentsPath.resolve(SHARDED_MARKER_FILE_NAME));
+
+        if (!Files.isDirectory(flatExperimentsPath))
+            return;
+
+        int migratedCount = 0;
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(flatExperimentsPath)) {
+            for (Path flatExperimentPath : directoryStream) {
+                final long experimentId;
+
+                try {
+                    experimentId = Long.parseLong(flatExperimentPath.getFileName().toString());
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Not migrating unknown entry " + flatExperimentPath);
+                    continue;
+                }
+
+                final Path experimentPath = getExperimentPath(experimentId);
+
+                Files.createDirectories(experimentPath.getParent());
+                Files.move(flatExperimentPath, experimentPath);
+                migratedCount++;
+            }
+        }
+
+        if (migratedCount > 0)
+            LOGGER.info("Migrated " + migratedCount + " experiment folders to the sharded layout");
+
+        try {
+            Files.delete(flatExperimentsPath);
+        } catch (IOException e) {
+            LOGGER.warn("Could not remove " + flatExperimentsPath + ", it still contains unknown entries");
+        }
+    }
+
     public static Path sanitizeFileName(String fileName) throws PathTraversalException {
         final File file = new File(fileName);
 
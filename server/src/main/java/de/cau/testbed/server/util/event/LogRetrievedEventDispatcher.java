@@ -0,0 +1,54 @@
+package de.cau.testbed.server.util.event;
+
+import de.cau.testbed.server.util.ExperimentFinishTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes {@link LogRetrievedEvent} events to the finish tracker of the event's experiment.
+ * Events are handled on the thread dispatching them. Each experiment has at most one tracker.
+ */
+public class LogRetrievedEventDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogRetrievedEventDispatcher.class);
+
+    // Experiment ID -> tracker waiting for the experiment's logs
+    private final Map<Long, ExperimentFinishTracker> trackers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the tracker for its experiment.
+     *
+     * @return the tracker previously registered for the experiment, if any
+     */
+    public ExperimentFinishTracker register(long experimentId, ExperimentFinishTracker tracker) {
+        return trackers.put(experimentId, tracker);
+    }
+
+    public void unregister(long experimentId, ExperimentFinishTracker tracker) {
+        trackers.remove(experimentId, tracker);
+    }
+
+    /**
+     * @return whether a tracker still waits for logs of the experiment
+     */
+    public boolean isRegistered(long experimentId) {
+        return trackers.containsKey(experimentId);
+    }
+
+    public void dispatch(LogRetrievedEvent event) {
+        final ExperimentFinishTracker tracker = trackers.get(event.experimentId());
+
+        if (tracker == null) {
+            LOGGER.info(String.format(
+                    "[Experiment %d] No tracker waiting for logs of node %s",
+                    event.experimentId(),
+                    event.nodeId()
+            ));
+            return;
+        }
+
+        tracker.onLogRetrieved(event);
+    }
+}
@@ -0,0 +1,90 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExperimentIntervalIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    void findsExperimentsContainingOrInsideTheFrame() {
+        final ExperimentIntervalIndex index = new ExperimentIntervalIndex();
+        final TestExperiment longExperiment = experiment(1, 0, 100);
+        final TestExperiment shortExperiment = experiment(2, 40, 50);
+        index.add(longExperiment);
+        index.add(shortExperiment);
+
+        assertEquals(List.of(longExperiment), index.getOverlapping(at(60), at(70)));
+        assertEquals(List.of(longExperiment, shortExperiment), index.getOverlapping(at(45), at(46)));
+        assertEquals(List.of(longExperiment, shortExperiment), index.getOverlapping(at(-10), at(110)));
+
+        // Both ends are inclusive
+        assertEquals(List.of(longExperiment, shortExperiment), index.getOverlapping(at(50), at(60)));
+        assertEquals(List.of(), index.getOverlapping(at(101), at(110)));
+
+        index.remove(longExperiment);
+        assertEquals(List.of(), index.getOverlapping(at(60), at(70)));
+    }
+
+    @Test
+    void matchesBruteForceForRandomOperations() {
+        for (long seed = 0; seed < 20; seed++)
+            runRandomOperations(new Random(seed));
+    }
+
+    private static void runRandomOperations(Random random) {
+        final ExperimentIntervalIndex index = new ExperimentIntervalIndex();
+        final List<TestExperiment> experiments = new ArrayList<>();
+        long nextId = 0;
+
+        for (int operation = 0; operation < 2_000; operation++) {
+            final int choice = random.nextInt(10);
+
+            if (choice < 4) {
+                // Many experiments share their start time, so ties are ordered by ID
+                final int start = random.nextInt(200);
+                final TestExperiment experiment = experiment(nextId++, start, start + random.nextInt(random.nextBoolean() ? 10 : 150));
+
+                index.add(experiment);
+                experiments.add(experiment);
+            } else if (choice < 6 && !experiments.isEmpty()) {
+                index.remove(experiments.remove(random.nextInt(experiments.size())));
+            } else {
+                // Frames range from single instants to frames containing most experiments
+                final int start = random.nextInt(400) - 50;
+                final LocalDateTime frameStart = at(start);
+                final LocalDateTime frameEnd = at(start + random.nextInt(random.nextBoolean() ? 5 : 300));
+
+                assertEquals(
+                        findBruteForce(experiments, frameStart, frameEnd),
+                        index.getOverlapping(frameStart, frameEnd),
+                        () -> String.format("Overlapping [%s, %s] among %s", frameStart, frameEnd, experiments)
+                );
+            }
+        }
+    }
+
+    private static List<ExperimentDescriptor> findBruteForce(List<TestExperiment> experiments, LocalDateTime start, LocalDateTime end) {
+        return experiments.stream()
+                .filter(experiment -> !experiment.end().isBefore(start) && !experiment.start().isAfter(end))
+                .sorted(Comparator.comparing(TestExperiment::start).thenComparingLong(TestExperiment::id))
+                .map(experiment -> (ExperimentDescriptor) experiment)
+                .toList();
+    }
+
+    private static TestExperiment experiment(long id, int start, int end) {
+        return new TestExperiment(id, at(start), at(end), List.of("raspi01"));
+    }
+
+    private static LocalDateTime at(int minutes) {
+        return BASE.plusMinutes(minutes);
+    }
+}
@@ -0,0 +1,173 @@
+package de.cau.testbed.server.config.datastore;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleGapIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int NODE_COUNT = 5;
+
+    @Test
+    void touchingExperimentsLeaveNoGapBetweenThem() {
+        final ScheduleGapIndex index = new ScheduleGapIndex();
+        final TestExperiment first = experiment(1, 10, 20, "raspi01");
+        final TestExperiment second = experiment(2, 20, 30, "raspi01");
+        final TestExperiment third = experiment(3, 30, 40, "raspi01");
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        assertEquals(at(0), index.findFreeTimeSlot(List.of("raspi01"), at(0), minutes(10)));
+        assertEquals(at(40), index.findFreeTimeSlot(List.of("raspi01"), at(5), minutes(10)));
+
+        // The released slot is exactly as long as the experiment that occupied it
+        index.remove(second);
+        assertEquals(at(20), index.findFreeTimeSlot(List.of("raspi01"), at(5), minutes(10)));
+        assertEquals(at(40), index.findFreeTimeSlot(List.of("raspi01"), at(5), minutes(11)));
+
+        // Releasing the neighbours merges all three slots with the open ends
+        index.remove(first);
+        index.remove(third);
+        assertEquals(at(5), index.findFreeTimeSlot(List.of("raspi01"), at(5), minutes(1_000)));
+    }
+
+    @Test
+    void experimentItselfIsIgnoredWhenMovingIt() {
+        final ScheduleGapIndex index = new ScheduleGapIndex();
+        final TestExperiment moved = experiment(1, 30, 40, "raspi01", "raspi02");
+        index.add(experiment(2, 0, 10, "raspi02"));
+        index.add(moved);
+
+        assertEquals(at(10), index.findFreeTimeSlot(moved, at(0), minutes(10)));
+
+        // The experiment's own slot is occupied again afterwards
+        assertEquals(at(40), index.findFreeTimeSlot(List.of("raspi01"), at(25), minutes(10)));
+    }
+
+    @Test
+    void matchesBruteForceForRandomOperations() {
+        for (long seed = 0; seed < 20; seed++)
+            runRandomOperations(new Random(seed));
+    }
+
+    private static void runRandomOperations(Random random) {
+        final ScheduleGapIndex index = new ScheduleGapIndex();
+        final List<TestExperiment> occupying = new ArrayList<>();
+        long nextId = 0;
+
+        for (int operation = 0; operation < 2_000; operation++) {
+            final int choice = random.nextInt(10);
+
+            if (choice < 4) {
+                final TestExperiment experiment = randomExperiment(random, nextId++, occupying);
+
+                if (collidesWithAny(experiment, occupying))
+                    continue;
+
+                index.add(experiment);
+                occupying.add(experiment);
+            } else if (choice < 6 && !occupying.isEmpty()) {
+                index.remove(occupying.remove(random.nextInt(occupying.size())));
+            } else if (choice < 8 || occupying.isEmpty()) {
+                final List<String> nodeIds = randomNodes(random);
+                final LocalDateTime earliestStart = at(random.nextInt(240));
+                final Duration duration = minutes(1 + random.nextInt(60));
+
+                assertEquals(
+                        findBruteForce(occupying, nodeIds, earliestStart, duration),
+                        index.findFreeTimeSlot(nodeIds, earliestStart, duration),
+                        () -> String.format("Slot for %s from %s for %s among %s", nodeIds, earliestStart, duration, occupying)
+                );
+            } else {
+                final TestExperiment experiment = occupying.get(random.nextInt(occupying.size()));
+                final List<TestExperiment> others = new ArrayList<>(occupying);
+                others.remove(experiment);
+                final LocalDateTime earliestStart = at(random.nextInt(240));
+                final Duration duration = minutes(1 + random.nextInt(60));
+
+                assertEquals(
+                        findBruteForce(others, experiment.nodeIds(), earliestStart, duration),
+                        index.findFreeTimeSlot(experiment, earliestStart, duration),
+                        () -> String.format("Slot for %s from %s for %s among %s", experiment, earliestStart, duration, others)
+                );
+            }
+        }
+    }
+
+    /**
+     * Experiments often start right where another one ends, to cover touching time frames.
+     */
+    private static TestExperiment randomExperiment(Random random, long id, List<TestExperiment> occupying) {
+        final int start;
+
+        if (!occupying.isEmpty() && random.nextInt(3) == 0)
+            start = (int) Duration.between(BASE, occupying.get(random.nextInt(occupying.size())).end()).toMinutes();
+        else
+            start = random.nextInt(240);
+
+        return new TestExperiment(id, at(start), at(start + 1 + random.nextInt(40)), randomNodes(random));
+    }
+
+    private static List<String> randomNodes(Random random) {
+        final Set<String> nodeIds = new TreeSet<>();
+        final int count = 1 + random.nextInt(3);
+
+        while (nodeIds.size() < count)
+            nodeIds.add(String.format("raspi%02d", random.nextInt(NODE_COUNT)));
+
+        return List.copyOf(nodeIds);
+    }
+
+    private static boolean collidesWithAny(TestExperiment experiment, List<TestExperiment> occupying) {
+        for (TestExperiment other : occupying) {
+            if (sharesNode(experiment, other.nodeIds()) && experiment.start().isBefore(other.end()) && other.start().isBefore(experiment.end()))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * The earliest free start is either the given one or the end of an experiment on one of the nodes.
+     */
+    private static LocalDateTime findBruteForce(List<TestExperiment> occupying, List<String> nodeIds, LocalDateTime earliestStart, Duration duration) {
+        final List<TestExperiment> relevant = occupying.stream().filter(experiment -> sharesNode(experiment, nodeIds)).toList();
+        final NavigableSet<LocalDateTime> candidates = new TreeSet<>();
+        candidates.add(earliestStart);
+
+        for (TestExperiment experiment : relevant) {
+            if (experiment.end().isAfter(earliestStart))
+                candidates.add(experiment.end());
+        }
+
+        for (LocalDateTime candidate : candidates) {
+            final LocalDateTime end = candidate.plus(duration);
+
+            if (relevant.stream().allMatch(experiment -> !end.isAfter(experiment.start()) || !candidate.isBefore(experiment.end())))
+                return candidate;
+        }
+
+        throw new AssertionError("The last experiment's end is always free");
+    }
+
+    private static boolean sharesNode(TestExperiment experiment, List<String> nodeIds) {
+        return experiment.nodeIds().stream().anyMatch(nodeIds::contains);
+    }
+
+    private static TestExperiment experiment(long id, int start, int end, String... nodeIds) {
+        return new TestExperiment(id, at(start), at(end), List.of(nodeIds));
+    }
+
+    private static LocalDateTime at(int minutes) {
+        return BASE.plusMinutes(minutes);
+    }
+
+    private static Duration minutes(int minutes) {
+        return Duration.ofMinutes(minutes);
+    }
+}
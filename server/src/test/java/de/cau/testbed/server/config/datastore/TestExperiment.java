@@ -0,0 +1,63 @@
+package de.cau.testbed.server.config.datastore;
+
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Scheduled experiment with a fixed time frame on the given nodes, for testing the indices without a database.
+ */
+record TestExperiment(long id, LocalDateTime start, LocalDateTime end, List<String> nodeIds) implements ExperimentDescriptor {
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return "experiment-" + id;
+    }
+
+    @Override
+    public User getOwner() {
+        return null;
+    }
+
+    @Override
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    @Override
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean isQueued() {
+        return false;
+    }
+
+    @Override
+    public ExperimentStatus getStatus() {
+        return ExperimentStatus.SCHEDULED;
+    }
+
+    @Override
+    public void setStatus(ExperimentStatus status) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<ExperimentNode> getNodes() {
+        return nodeIds.stream().map(nodeId -> new ExperimentNode(nodeId, List.of())).toList();
+    }
+
+    @Override
+    public Object getLockObject() {
+        return this;
+    }
+}
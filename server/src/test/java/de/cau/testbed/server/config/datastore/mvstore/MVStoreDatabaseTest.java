@@ -0,0 +1,92 @@
+package de.cau.testbed.server.config.datastore.mvstore;
+
+import de.cau.testbed.server.api.ExperimentTemplate;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.constants.UserType;
+import org.h2.mvstore.MVStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MVStoreDatabaseTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void timeFrameQueriesMatchBruteForce() {
+        final Random random = new Random(42);
+        final Map<Long, LocalDateTime[]> timeFrames = new HashMap<>();
+
+        try (MVStoreDatabase database = new MVStoreDatabase(directory)) {
+            final User owner = database.getUserDatabase().addUser("owner", UserType.USER);
+
+            for (int i = 0; i < 500; i++) {
+                final LocalDateTime start = at(random.nextInt(30 * 24 * 60));
+                // A few experiments run for days, so that they reach into many time frames
+                final LocalDateTime end = start.plusMinutes(random.nextInt(50) == 0 ? random.nextInt(10 * 24 * 60) : random.nextInt(180));
+                final ExperimentDescriptor experiment = database.addExperiment(new ExperimentTemplate(
+                        "experiment-" + i, start, end, List.of(new ExperimentNode("raspi" + i, List.of()))
+                ), owner, false);
+
+                if (random.nextBoolean())
+                    experiment.setStatus(ExperimentStatus.DONE);
+
+                timeFrames.put(experiment.getId(), new LocalDateTime[]{start, end});
+            }
+
+            // Rescheduled experiments have to move in both indices
+            for (ExperimentDescriptor experiment : database.getExperimentsWithStatus(ExperimentStatus.CREATED).subList(0, 20)) {
+                final LocalDateTime start = at(random.nextInt(30 * 24 * 60));
+                database.rescheduleExperiment(experiment, start);
+                timeFrames.put(experiment.getId(), new LocalDateTime[]{experiment.getStart(), experiment.getEnd()});
+            }
+
+            assertTimeFramesMatch(database, timeFrames, random);
+        }
+
+        // Stores written without the end index are indexed when opened
+        final MVStore store = new MVStore.Builder().fileName(directory.resolve("testbed.mv.db").toString()).open();
+        store.removeMap("endIndex");
+        store.commit();
+        store.close();
+
+        try (MVStoreDatabase database = new MVStoreDatabase(directory)) {
+            assertTimeFramesMatch(database, timeFrames, random);
+        }
+    }
+
+    private static void assertTimeFramesMatch(MVStoreDatabase database, Map<Long, LocalDateTime[]> timeFrames, Random random) {
+        for (int i = 0; i < 500; i++) {
+            // Time frames range from instants to weeks, before, within and after the schedule
+            final LocalDateTime start = at(random.nextInt(40 * 24 * 60) - 5 * 24 * 60);
+            final LocalDateTime end = start.plusMinutes(random.nextBoolean() ? random.nextInt(60) : random.nextInt(14 * 24 * 60));
+
+            final List<Long> expectedIds = timeFrames.entrySet().stream()
+                    .filter(entry -> !entry.getValue()[0].isAfter(end) && !entry.getValue()[1].isBefore(start))
+                    .sorted(Comparator.comparing((Map.Entry<Long, LocalDateTime[]> entry) -> entry.getValue()[0]).thenComparing(Map.Entry::getKey))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            final List<Long> actualIds = database.getExperimentsInTimeFrame(start, end).stream()
+                    .map(ExperimentDescriptor::getId)
+                    .toList();
+
+            assertEquals(expectedIds, actualIds, () -> String.format("Experiments in [%s, %s]", start, end));
+        }
+
+        assertEquals(timeFrames.size(), database.getExperimentsInTimeFrame(LocalDateTime.MIN, LocalDateTime.MAX).size());
+    }
+
+    private static LocalDateTime at(int minutes) {
+        return BASE.plusMinutes(minutes);
+    }
+}
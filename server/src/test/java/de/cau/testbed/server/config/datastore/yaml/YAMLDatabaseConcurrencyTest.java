@@ -0,0 +1,119 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.api.ExperimentTemplate;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentModule;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.DeviceType;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.constants.UserType;
+import de.cau.testbed.server.util.PathUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YAMLDatabaseConcurrencyTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 8;
+    private static final int EXPERIMENTS_PER_WRITER = 50;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readersSeeConsistentSnapshotsWhileWritersAddAndUpdate() throws Exception {
+        PathUtil.initialize(directory);
+        Files.writeString(directory.resolve("users.yaml"), "users: []\nnextId: 1\n");
+
+        try (YAMLDatabase database = new YAMLDatabase(directory, Duration.ofDays(365))) {
+            final User owner = database.getUserDatabase().addUser("stress", UserType.USER);
+            final ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicBoolean writing = new AtomicBoolean(true);
+
+            final List<Future<?>> writers = new ArrayList<>();
+
+            for (int writer = 0; writer < WRITERS; writer++) {
+                final int offset = writer * EXPERIMENTS_PER_WRITER;
+
+                writers.add(executor.submit(() -> {
+                    start.await();
+
+                    for (int i = 0; i < EXPERIMENTS_PER_WRITER; i++) {
+                        final ExperimentDescriptor experiment = database.addExperiment(createTemplate(offset + i), owner, false);
+                        experiment.setStatus(ExperimentStatus.SCHEDULED);
+                    }
+
+                    return null;
+                }));
+            }
+
+            final List<Future<Integer>> readers = new ArrayList<>();
+
+            for (int reader = 0; reader < READERS; reader++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+
+                    int previousSize = 0;
+                    int iterations = 0;
+
+                    do {
+                        final List<ExperimentDescriptor> snapshot = database.getExperiments();
+                        final Set<Long> ids = new HashSet<>();
+
+                        // Iterating fails with a ConcurrentModificationException if writers mutate the list in place
+                        for (ExperimentDescriptor experiment : snapshot)
+                            assertTrue(ids.add(experiment.getId()), "Duplicate experiment " + experiment.getId());
+
+                        assertEquals(snapshot.size(), ids.size());
+                        assertTrue(snapshot.size() >= previousSize, "Snapshot went back in time");
+
+                        previousSize = snapshot.size();
+                        iterations++;
+                    } while (writing.get());
+
+                    return iterations;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> writer : writers)
+                writer.get(60, TimeUnit.SECONDS);
+
+            writing.set(false);
+
+            for (Future<Integer> reader : readers)
+                assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+
+            executor.shutdown();
+
+            final List<ExperimentDescriptor> experiments = database.getExperiments();
+            assertEquals(WRITERS * EXPERIMENTS_PER_WRITER, experiments.size());
+
+            for (ExperimentDescriptor experiment : experiments)
+                assertEquals(ExperimentStatus.SCHEDULED, experiment.getStatus());
+        }
+    }
+
+    private static ExperimentTemplate createTemplate(int index) {
+        final LocalDateTime start = LocalDateTime.now().plusHours(1).plusMinutes(10L * index);
+
+        return new ExperimentTemplate(
+                "experiment-" + index,
+                start,
+                start.plusMinutes(5),
+                List.of(new ExperimentNode("raspi01", List.of(new ExperimentModule(DeviceType.SKY, "firmware.ihex", false, true, false))))
+        );
+    }
+}
@@ -0,0 +1,203 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.config.YAMLParser;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.constants.UserType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YAMLExperimentArchiveTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void lookupsFindExperimentsOfAllArchiveRuns() throws IOException {
+        final Random random = new Random(42);
+        final Map<Long, ArchivedExperiment> archived = new TreeMap<>();
+        long nextId = 0;
+
+        // Every run archives experiments of several months, and later runs add segments to months archived before
+        for (int run = 0; run < 10; run++) {
+            final YAMLExperimentArchive archive = new YAMLExperimentArchive(directory);
+            final List<ExperimentDescriptor> experiments = new ArrayList<>();
+
+            for (int i = 0; i < 30; i++) {
+                final ArchivedExperiment experiment = new ArchivedExperiment(
+                        nextId++,
+                        new TestUser(random.nextInt(5)),
+                        BASE.plusDays(random.nextInt(90))
+                );
+                experiments.add(experiment);
+                archived.put(experiment.id(), experiment);
+            }
+
+            archive.archive(experiments);
+        }
+
+        final YAMLExperimentArchive archive = new YAMLExperimentArchive(directory);
+
+        for (ArchivedExperiment experiment : archived.values()) {
+            final YAMLExperimentInfo experimentInfo = archive.get(experiment.id()).orElseThrow();
+
+            assertEquals(experiment.getName(), experimentInfo.name());
+            assertEquals(experiment.owner().getId(), experimentInfo.owner());
+            assertEquals(experiment.end(), experimentInfo.end());
+        }
+
+        assertFalse(archive.contains(nextId));
+        assertFalse(archive.contains(-1));
+
+        for (long ownerId = 0; ownerId < 6; ownerId++) {
+            final long owner = ownerId;
+            final List<Long> expectedIds = archived.values().stream()
+                    .filter(experiment -> experiment.owner().getId() == owner)
+                    .map(ArchivedExperiment::id)
+                    .toList();
+
+            assertEquals(expectedIds, archive.getByOwner(ownerId).stream().map(YAMLExperimentInfo::experimentId).toList());
+        }
+
+        assertEquals(archived.size(), archive.getAll().size());
+    }
+
+    @Test
+    void legacyIndexIsSplitIntoSegments() throws IOException {
+        final Path archiveDirectory = directory.resolve("archive");
+        Files.createDirectories(archiveDirectory);
+
+        YAMLParser.writeFile(archiveDirectory.resolve("2026-01.yaml"), new YAMLExperimentArchive.Segment(List.of(
+                experimentInfo(3, 1), experimentInfo(7, 2)
+        )));
+        YAMLParser.writeFile(archiveDirectory.resolve("2026-02.yaml"), new YAMLExperimentArchive.Segment(List.of(
+                experimentInfo(5, 1)
+        )));
+        YAMLParser.writeFile(archiveDirectory.resolve("index.yaml"), new YAMLExperimentArchive.LegacyIndex(List.of(
+                new YAMLExperimentArchive.LegacyIndexEntry(3, 1, "2026-01.yaml"),
+                new YAMLExperimentArchive.LegacyIndexEntry(7, 2, "2026-01.yaml"),
+                new YAMLExperimentArchive.LegacyIndexEntry(5, 1, "2026-02.yaml")
+        )));
+
+        new YAMLExperimentArchive(directory);
+        assertFalse(Files.exists(archiveDirectory.resolve("index.yaml")));
+
+        final YAMLExperimentArchive archive = new YAMLExperimentArchive(directory);
+
+        assertTrue(archive.contains(5));
+        assertFalse(archive.contains(4));
+        assertEquals(List.of(3L, 5L), archive.getByOwner(1).stream().map(YAMLExperimentInfo::experimentId).toList());
+        assertEquals(List.of(7L), archive.getByOwner(2).stream().map(YAMLExperimentInfo::experimentId).toList());
+    }
+
+    @Test
+    void partiallyWrittenSegmentIsCutOff() throws IOException {
+        new YAMLExperimentArchive(directory).archive(List.of(new ArchivedExperiment(1, new TestUser(1), BASE)));
+
+        // Crash while appending the next segment, whose experiments are still in 'experiments.yaml'
+        final Path segmentsFile = directory.resolve("archive").resolve("segments.journal");
+        Files.writeString(segmentsFile, "{\"segment\":\"2026-02.y", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        new YAMLExperimentArchive(directory).archive(List.of(new ArchivedExperiment(2, new TestUser(1), BASE.plusMonths(1))));
+
+        final YAMLExperimentArchive archive = new YAMLExperimentArchive(directory);
+
+        assertTrue(archive.contains(1));
+        assertTrue(archive.contains(2));
+        assertEquals(2, Files.readAllLines(segmentsFile).size());
+    }
+
+    private static YAMLExperimentInfo experimentInfo(long id, long owner) {
+        return new YAMLExperimentInfo("experiment-" + id, owner, id, ExperimentStatus.DONE, BASE, BASE.plusHours(1), false);
+    }
+
+    private record TestUser(long id) implements User {
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "user-" + id;
+        }
+
+        @Override
+        public UserType getType() {
+            return UserType.USER;
+        }
+
+        @Override
+        public String getApiKey() {
+            return null;
+        }
+    }
+
+    /**
+     * Finished experiment that ended at the given time, as handed over to the archive.
+     */
+    private record ArchivedExperiment(long id, User owner, LocalDateTime end) implements ExperimentDescriptor {
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "experiment-" + id;
+        }
+
+        @Override
+        public User getOwner() {
+            return owner;
+        }
+
+        @Override
+        public LocalDateTime getStart() {
+            return end.minusHours(1);
+        }
+
+        @Override
+        public LocalDateTime getEnd() {
+            return end;
+        }
+
+        @Override
+        public boolean isQueued() {
+            return false;
+        }
+
+        @Override
+        public ExperimentStatus getStatus() {
+            return ExperimentStatus.DONE;
+        }
+
+        @Override
+        public void setStatus(ExperimentStatus status) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ExperimentNode> getNodes() {
+            return List.of();
+        }
+
+        @Override
+        public Object getLockObject() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package de.cau.testbed.server.config.datastore.yaml;
+
+import de.cau.testbed.server.constants.ExperimentStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class YAMLExperimentJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesAfterTornWriteSurviveReplay() throws IOException {
+        final Path journalFile = directory.resolve("experiments.journal");
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            journal.appendStatus(1, ExperimentStatus.SCHEDULED);
+        }
+
+        // Crash while appending the second entry
+        Files.writeString(journalFile, "{\"type\":\"STAT", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            assertEquals(1, journal.readEntries().size());
+
+            // Compaction failed, so the journal keeps growing
+            journal.appendStatus(2, ExperimentStatus.CANCELLED);
+        }
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            final List<YAMLExperimentJournal.Entry> entries = journal.readEntries();
+
+            assertEquals(2, entries.size());
+            assertEquals(2L, entries.get(1).experimentId());
+            assertEquals(ExperimentStatus.CANCELLED, entries.get(1).status());
+        }
+    }
+
+    @Test
+    void corruptLineIsSkipped() throws IOException {
+        final Path journalFile = directory.resolve("experiments.journal");
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            journal.appendStatus(1, ExperimentStatus.SCHEDULED);
+        }
+
+        Files.writeString(journalFile, "{\"type\":\"STAT{\"type\":\"STATUS\"\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            journal.appendStatus(3, ExperimentStatus.DONE);
+        }
+
+        try (YAMLExperimentJournal journal = new YAMLExperimentJournal(journalFile)) {
+            final List<YAMLExperimentJournal.Entry> entries = journal.readEntries();
+
+            assertEquals(2, entries.size());
+            assertEquals(3L, entries.get(1).experimentId());
+            assertEquals(3, journal.getEntryCount());
+        }
+    }
+}
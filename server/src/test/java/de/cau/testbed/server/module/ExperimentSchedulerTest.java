@@ -0,0 +1,102 @@
+package de.cau.testbed.server.module;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import de.cau.testbed.server.config.datastore.User;
+import de.cau.testbed.server.config.experiment.ExperimentDescriptor;
+import de.cau.testbed.server.config.experiment.ExperimentNode;
+import de.cau.testbed.server.constants.ExperimentStatus;
+import de.cau.testbed.server.network.memory.InMemoryTransport;
+import de.cau.testbed.server.util.ExperimentFinishTrackerFactory;
+import de.cau.testbed.server.util.FirmwareStagingTracker;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExperimentSchedulerTest {
+    private static final int EXPERIMENTS = 2_000;
+
+    @Test
+    void timersFiringImmediatelyRemoveTheirEntry() throws InterruptedException {
+        final MetricRegistry metrics = new MetricRegistry();
+        final ExperimentScheduler scheduler = new ExperimentScheduler(
+                new InMemoryTransport(),
+                new ExperimentFinishTrackerFactory(new LogRetrievedEventDispatcher()),
+                new FirmwareStagingTracker(),
+                metrics
+        );
+
+        // Starting within the preparation buffer, so every timer fires without delay
+        for (long id = 0; id < EXPERIMENTS; id++)
+            scheduler.schedule(new UnscheduledExperiment(id, LocalDateTime.now()));
+
+        @SuppressWarnings("unchecked") final Gauge<Integer> armedTimers =
+                metrics.getGauges().get(MetricRegistry.name(ExperimentScheduler.class, "armedTimers"));
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+
+        while (armedTimers.getValue() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertEquals(0, armedTimers.getValue());
+    }
+
+    /**
+     * Experiment that was never scheduled, so preparing it does nothing.
+     */
+    private record UnscheduledExperiment(long id, LocalDateTime start) implements ExperimentDescriptor {
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "experiment-" + id;
+        }
+
+        @Override
+        public User getOwner() {
+            return null;
+        }
+
+        @Override
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        @Override
+        public LocalDateTime getEnd() {
+            return start.plusMinutes(5);
+        }
+
+        @Override
+        public boolean isQueued() {
+            return false;
+        }
+
+        @Override
+        public ExperimentStatus getStatus() {
+            return ExperimentStatus.CREATED;
+        }
+
+        @Override
+        public void setStatus(ExperimentStatus status) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ExperimentNode> getNodes() {
+            return List.of();
+        }
+
+        @Override
+        public Object getLockObject() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package de.cau.testbed.server.module;
+
+import com.codahale.metrics.MetricRegistry;
+import de.cau.testbed.server.network.fileTransfer.FileTransferHandler;
+import de.cau.testbed.server.network.fileTransfer.TransferScheduler;
+import de.cau.testbed.server.network.fileTransfer.TransferTarget;
+import de.cau.testbed.server.network.message.LogRetrievalMessage;
+import de.cau.testbed.server.util.ExperimentFinishTracker;
+import de.cau.testbed.server.util.PathUtil;
+import de.cau.testbed.server.util.event.LogRetrievedEventDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogRetrievalHandlerTest {
+    private static final long EXPERIMENT_ID = 42;
+
+    private final LogRetrievedEventDispatcher dispatcher = new LogRetrievedEventDispatcher();
+    // Never started, only registered so that the handler keeps retrying
+    private final ExperimentFinishTracker tracker = new ExperimentFinishTracker(null, List.of(), dispatcher, () -> {});
+
+    @BeforeEach
+    void initializePaths(@TempDir Path workingDirectory) {
+        PathUtil.initialize(workingDirectory);
+    }
+
+    @Test
+    void retriesWhileTrackerIsRegistered() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final LogRetrievalHandler handler = createHandler(() -> {
+            if (attempts.incrementAndGet() == 1)
+                throw new IOException("Connection reset");
+
+            // Nothing is left to dispatch the retrieved logs to
+            dispatcher.unregister(EXPERIMENT_ID, tracker);
+        });
+        dispatcher.register(EXPERIMENT_ID, tracker);
+
+        handler.apply(message()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void stopsRetryingOnceTrackerIsUnregistered() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final LogRetrievalHandler handler = createHandler(() -> {
+            attempts.incrementAndGet();
+            throw new IOException("Connection refused");
+        });
+        dispatcher.register(EXPERIMENT_ID, tracker);
+
+        final CompletableFuture<Void> retrieval = handler.apply(message()).toCompletableFuture();
+
+        // The first retry is due after a second, the tracker gives up before that
+        Thread.sleep(200);
+        dispatcher.unregister(EXPERIMENT_ID, tracker);
+
+        retrieval.get(10, TimeUnit.SECONDS);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryWithoutTracker() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final LogRetrievalHandler handler = createHandler(() -> {
+            attempts.incrementAndGet();
+            throw new IOException("Connection refused");
+        });
+
+        handler.apply(message()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, attempts.get());
+    }
+
+    private LogRetrievalHandler createHandler(Download download) {
+        final FileTransferHandler transferHandler = new FileTransferHandler() {
+            @Override
+            public void upload(TransferTarget target, Path localPath) {
+            }
+
+            @Override
+            public void download(TransferTarget target, Path localPath) throws IOException {
+                download.run();
+            }
+        };
+
+        return new LogRetrievalHandler(dispatcher, new TransferScheduler(transferHandler, 2, 2, new MetricRegistry()));
+    }
+
+    private static LogRetrievalMessage message() {
+        return new LogRetrievalMessage("raspi01", "pi", Long.toString(EXPERIMENT_ID), "raspi01", "/home/pi/logs");
+    }
+
+    @FunctionalInterface
+    private interface Download {
+        void run() throws IOException;
+    }
+}
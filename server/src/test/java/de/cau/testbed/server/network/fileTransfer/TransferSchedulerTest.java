@@ -0,0 +1,126 @@
+package de.cau.testbed.server.network.fileTransfer;
+
+import com.codahale.metrics.MetricRegistry;
+import de.cau.testbed.server.constants.TransferPriority;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferSchedulerTest {
+    private static final Path FIRMWARE = Path.of("firmware.ihex");
+
+    @Test
+    void imminentFirmwareOvertakesQueuedStaging() throws Exception {
+        final BlockingTransferHandler handler = new BlockingTransferHandler();
+        final TransferScheduler scheduler = new TransferScheduler(handler, 2, 2, new MetricRegistry());
+
+        // Enqueuing returns right away, although only one staging transfer is admitted
+        final List<CompletableFuture<Void>> stagingTransfers = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++)
+            stagingTransfers.add(scheduler.upload(TransferPriority.STAGING, target("raspi" + i), FIRMWARE));
+
+        assertEquals("raspi0", handler.started.poll(5, TimeUnit.SECONDS));
+
+        // The slot left free by staging transfers is taken by firmware for an imminent experiment
+        final CompletableFuture<Void> firmwareTransfer = scheduler.upload(TransferPriority.FIRMWARE, target("raspi17"), FIRMWARE);
+        assertEquals("raspi17", handler.started.poll(5, TimeUnit.SECONDS));
+
+        handler.release("raspi17");
+        firmwareTransfer.get(5, TimeUnit.SECONDS);
+        assertTrue(stagingTransfers.stream().noneMatch(CompletableFuture::isDone));
+
+        for (int i = 0; i < 10; i++)
+            handler.release("raspi" + i);
+
+        CompletableFuture.allOf(stagingTransfers.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void failedTransferCompletesExceptionally() {
+        final FileTransferHandler handler = new FileTransferHandler() {
+            @Override
+            public void upload(TransferTarget target, Path localPath) throws IOException {
+                throw new IOException("Connection refused");
+            }
+
+            @Override
+            public void download(TransferTarget target, Path localPath) {
+            }
+        };
+        final TransferScheduler scheduler = new TransferScheduler(handler, 2, 2, new MetricRegistry());
+
+        final ExecutionException exception = assertThrows(
+                ExecutionException.class,
+                () -> scheduler.upload(TransferPriority.FIRMWARE, target("raspi01"), FIRMWARE).get(5, TimeUnit.SECONDS)
+        );
+        assertInstanceOf(IOException.class, exception.getCause());
+
+        // The failed transfer gave its slot back
+        assertDoesNotThrow(() -> scheduler.download(TransferPriority.LOGS, target("raspi01"), FIRMWARE).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void errorCompletesExceptionally() {
+        final FileTransferHandler handler = new FileTransferHandler() {
+            @Override
+            public void upload(TransferTarget target, Path localPath) {
+                throw new NoClassDefFoundError("net/schmizz/sshj/SSHClient");
+            }
+
+            @Override
+            public void download(TransferTarget target, Path localPath) {
+            }
+        };
+        final TransferScheduler scheduler = new TransferScheduler(handler, 1, 1, new MetricRegistry());
+
+        final ExecutionException exception = assertThrows(
+                ExecutionException.class,
+                () -> scheduler.upload(TransferPriority.FIRMWARE, target("raspi01"), FIRMWARE).get(5, TimeUnit.SECONDS)
+        );
+        assertInstanceOf(NoClassDefFoundError.class, exception.getCause());
+        assertDoesNotThrow(() -> scheduler.download(TransferPriority.LOGS, target("raspi01"), FIRMWARE).get(5, TimeUnit.SECONDS));
+    }
+
+    private static TransferTarget target(String host) {
+        return new NodeTransferTarget(host, "pi", Path.of("/home/pi/firmware.ihex"));
+    }
+
+    /**
+     * Reports the host of every started transfer and blocks it until it is released.
+     */
+    private static class BlockingTransferHandler implements FileTransferHandler {
+        private final BlockingQueue<String> started = new LinkedBlockingQueue<>();
+        private final ConcurrentMap<String, CountDownLatch> releases = new ConcurrentHashMap<>();
+
+        void release(String host) {
+            getRelease(host).countDown();
+        }
+
+        private CountDownLatch getRelease(String host) {
+            return releases.computeIfAbsent(host, h -> new CountDownLatch(1));
+        }
+
+        @Override
+        public void upload(TransferTarget target, Path localPath) throws IOException {
+            started.add(target.host());
+
+            try {
+                getRelease(target.host()).await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void download(TransferTarget target, Path localPath) throws IOException {
+            upload(target, localPath);
+        }
+    }
+}
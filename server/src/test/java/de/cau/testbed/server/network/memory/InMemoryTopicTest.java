@@ -0,0 +1,94 @@
+package de.cau.testbed.server.network.memory;
+
+import de.cau.testbed.server.constants.KafkaTopic;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryTopicTest {
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 3;
+    private static final int MESSAGES_PER_PRODUCER = 20_000;
+
+    @Test
+    void idleReceiverWakesUpOnPublish() throws Exception {
+        final InMemoryTopic topic = new InMemoryTopic(16);
+        final InMemoryNetworkReceiver<String> receiver = createReceiver(topic, "group");
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        executor.schedule(() -> topic.publish("hello".getBytes(StandardCharsets.UTF_8)), 200, TimeUnit.MILLISECONDS);
+
+        final long startNanos = System.nanoTime();
+        final List<String> messages = receiver.receiveBatch(10, Duration.ofSeconds(10));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        executor.shutdown();
+
+        assertEquals(List.of("hello"), messages);
+        assertTrue(elapsedMillis < 5_000, "Receiver woke up after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void idleReceiverReturnsEmptyAfterTimeout() {
+        final InMemoryNetworkReceiver<String> receiver = createReceiver(new InMemoryTopic(16), "group");
+
+        assertTrue(receiver.receiveBatch(10, Duration.ofMillis(50)).isEmpty());
+    }
+
+    @Test
+    void everyMessageIsReceivedOncePerGroup() throws Exception {
+        final InMemoryTopic topic = new InMemoryTopic(1024);
+        final List<InMemoryNetworkReceiver<String>> receivers = new ArrayList<>();
+
+        for (int i = 0; i < CONSUMERS; i++)
+            receivers.add(createReceiver(topic, "group"));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+        final Set<String> received = ConcurrentHashMap.newKeySet();
+        final List<Future<Integer>> consumers = new ArrayList<>();
+
+        for (InMemoryNetworkReceiver<String> receiver : receivers) {
+            consumers.add(executor.submit(() -> {
+                int count = 0;
+                List<String> messages;
+
+                // Producers never pause for long, so a second without messages means they are done
+                while (!(messages = receiver.receiveBatch(100, Duration.ofSeconds(1))).isEmpty()) {
+                    received.addAll(messages);
+                    count += messages.size();
+                }
+
+                return count;
+            }));
+        }
+
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            final int producerId = producer;
+
+            executor.submit(() -> {
+                for (int i = 0; i < MESSAGES_PER_PRODUCER; i++)
+                    topic.publish((producerId + "-" + i).getBytes(StandardCharsets.UTF_8));
+            });
+        }
+
+        int total = 0;
+
+        for (Future<Integer> consumer : consumers)
+            total += consumer.get(60, TimeUnit.SECONDS);
+
+        executor.shutdown();
+
+        assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, total);
+        assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, received.size());
+    }
+
+    private static InMemoryNetworkReceiver<String> createReceiver(InMemoryTopic topic, String consumerGroup) {
+        return new InMemoryNetworkReceiver<>(topic, KafkaTopic.HEARTBEAT, new StringDeserializer(), consumerGroup);
+    }
+}
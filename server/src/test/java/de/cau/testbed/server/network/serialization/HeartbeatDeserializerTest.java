@@ -0,0 +1,92 @@
+package de.cau.testbed.server.network.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartbeatDeserializerTest {
+    private final HeartbeatDeserializer deserializer = new HeartbeatDeserializer();
+
+    @Test
+    void parsesBothKeys() {
+        assertHandParsed("{\"nodeId\": \"raspi01\"}", "raspi01");
+        assertHandParsed("{\"id\": \"raspi01\"}", "raspi01");
+    }
+
+    @Test
+    void skipsWhitespace() {
+        assertHandParsed("{\"nodeId\":\"raspi01\"}", "raspi01");
+        assertHandParsed(" \r\n{\t\"nodeId\" :\n\"raspi01\"  }\n", "raspi01");
+        assertHandParsed("{\"nodeId\": \" raspi01 \"}", " raspi01 ");
+    }
+
+    @Test
+    void decodesMultiByteNodeIds() {
+        assertHandParsed("{\"nodeId\": \"knoten-\u00e4-\u2603-\uD83D\uDE00\"}", "knoten-\u00e4-\u2603-\uD83D\uDE00");
+        assertHandParsed("{\"nodeId\": \"\"}", "");
+    }
+
+    @Test
+    void leavesEscapedStringsToJackson() {
+        assertLeftToJackson("{\"nodeId\": \"ras\\\"pi01\"}", "ras\"pi01");
+        assertLeftToJackson("{\"nodeId\": \"raspi\\u0030\\u0031\"}", "raspi01");
+        assertLeftToJackson("{\"\\u0069d\": \"raspi01\"}", "raspi01");
+    }
+
+    @Test
+    void leavesNonStringValuesToJackson() {
+        assertLeftToJackson("{\"nodeId\": 17}", "17");
+        assertLeftToJackson("{\"nodeId\": null}", null);
+    }
+
+    @Test
+    void leavesFurtherFieldsToJackson() {
+        assertLeftToJackson("{}", null);
+        assertLeftToJackson("{\"nodeId\": \"raspi01\", \"nodeId\": \"raspi02\"}", "raspi01");
+        assertBothReject("{\"nodeId\": \"raspi01\", \"uptime\": 5}");
+        assertBothReject("{\"name\": \"raspi01\"}");
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertLeftToJackson("{\"nodeId\": \"raspi01\"} trailing", "raspi01");
+        assertBothReject("{\"nodeId\": \"raspi01\"");
+        assertBothReject("{\"nodeId\": \"raspi01");
+        assertBothReject("{\"nodeId\" \"raspi01\"}");
+        assertBothReject("[\"raspi01\"]");
+        assertBothReject("");
+    }
+
+    /**
+     * Asserts that the heartbeat is parsed by hand, with the same result as Jackson.
+     */
+    private void assertHandParsed(String json, String expectedNodeId) {
+        final byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expectedNodeId, HeartbeatDeserializer.parseNodeId(data));
+        assertEquals(expectedNodeId, deserializer.deserialize(data).getNodeId());
+        assertEquals(expectedNodeId, deserializer.deserialize("heartbeat", data).getNodeId());
+    }
+
+    /**
+     * Asserts that the heartbeat is not parsed by hand, but read by Jackson instead.
+     */
+    private void assertLeftToJackson(String json, String expectedNodeId) {
+        final byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        assertNull(HeartbeatDeserializer.parseNodeId(data));
+        assertEquals(expectedNodeId, deserializer.deserialize(data).getNodeId());
+        assertEquals(expectedNodeId, deserializer.deserialize("heartbeat", data).getNodeId());
+    }
+
+    private void assertBothReject(String json) {
+        final byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        assertNull(HeartbeatDeserializer.parseNodeId(data));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(data));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("heartbeat", data));
+    }
+}